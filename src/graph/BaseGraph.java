@@ -1,6 +1,7 @@
 package graph;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * Basic edge-weighted graph implementation by an adjacency list
@@ -91,6 +92,17 @@ public abstract class BaseGraph<E extends Edge>
 		return adj.get(v);
 	}
 	
+	/**
+	 * Visits every edge in the adjacency lists in place
+	 */
+	public void forEachEdge(Consumer<? super E> action) {
+		for(int u = 0; u < V; u++) {
+			List<E> list = adj.get(u);
+			for(int i = 0; i < list.size(); i++)
+				action.accept(list.get(i));
+		}
+	}
+	
 	/**
 	 * Checks if two vertices are adjacent to each other
 	 */
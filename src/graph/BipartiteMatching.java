@@ -11,7 +11,10 @@ import utils.Time;
 /**
  * Hopcroft-Karp algorithm for maximum bipartite matching
  * Based on pseudocode from Wikipedia
- * Only accepts 1-index graphs.
+ * Only accepts 1-index graphs. The graph is given either as an UndirectedGraph or directly in
+ * compressed sparse row (CSR) form as the neighbours of each vertex of the L-partition.
+ * The matching is started from a greedy maximal matching, and the searches use int arrays
+ * as their queue and stack, so long augmenting paths cannot overflow the call stack.
  * @author Duncan
  *
  */
@@ -23,12 +26,22 @@ public class BipartiteMatching {
 	
 	boolean DEBUG = false;
 	
-	private UndirectedGraph<Edge> G;
+	private UndirectedGraph<Edge> G;	//null if given in CSR form
 	private Set<Edge> matching;
 	private int n;
+	private int[] start;	//neighbours of u are adj[start[u]] ... adj[start[u + 1] - 1]
+	private int[] adj;
 	private int value;
 	private int[] match;	//matching
 	private int[] dist;		//layers
+	private int[] queue;	//bfs queue
+	private int[] stack;	//path of the dfs
+	private int[] arc;		//next edge to try from each vertex in the current phase
+	
+	private int greedy;				//matches found by the warm start
+	private int phases;
+	private int[] phaseAugmentations = new int[4];	//augmenting paths found in each phase
+	private int[] phaseLayers = new int[4];			//layers of the bfs in each phase
 	
 	
 	/**
@@ -40,15 +53,40 @@ public class BipartiteMatching {
 	public BipartiteMatching(UndirectedGraph<Edge> bipartiteGraph, int n) {
 		this.n = n;
 		G = bipartiteGraph;
+		//list the neighbours of the L-partition
+		start = new int[n + 1];
+		for(int u = 1; u < n; u++)
+			start[u + 1] = start[u] + G.edgesOf(u).size();
+		adj = new int[start[n]];
+		for(int u = 1; u < n; u++) {
+			int i = start[u];
+			for(Edge e : G.edgesOf(u))
+				adj[i++] = e.other(u);
+		}
 		match = new int[G.order()];
-		for(int i = 1; i < match.length; i++)
-			match[i] = NIL;
-		dist = new int[G.order()];
+		dist = new int[n];
 		hopcroftKarp();
 	}
 	
 	/**
-	 * Returns the bipartite graph
+	 * Finds the maximum matching given a bipartite graph in CSR form
+	 * The vertices are 1 ... order - 1 and the L-partition is 1 ... n - 1.
+	 * @param order the number of vertices, including the unused vertex 0
+	 * @param n the first vertex in the R-partition
+	 * @param start the neighbours of u < n are adj[start[u]] ... adj[start[u + 1] - 1]
+	 * @param adj the neighbours, all in the R-partition
+	 */
+	public BipartiteMatching(int order, int n, int[] start, int[] adj) {
+		this.n = n;
+		this.start = start;
+		this.adj = adj;
+		match = new int[order];
+		dist = new int[n];
+		hopcroftKarp();
+	}
+	
+	/**
+	 * Returns the bipartite graph, or null if it was given in CSR form
 	 */
 	public UndirectedGraph<Edge> getGraph() { return G; }
 	
@@ -72,44 +110,116 @@ public class BipartiteMatching {
 		matching = new HashSet<>();
 		for(int v = 1; v < n; v++)
 			if(match[v] != 0)
-				matching.add(G.getEdge(v, match[v]));
+				matching.add(G == null ? new Edge(v, match[v]) : G.getEdge(v, match[v]));
 		return matching;
 	}
 	
+	/**
+	 * Finds a minimum vertex cover from the maximum matching (Konig's theorem)
+	 * Let Z be the vertices reachable from the free vertices of L by alternating paths, which
+	 * follow unmatched edges from L to R and matched edges from R to L. Then (L \ Z) and (R n Z)
+	 * form a minimum vertex cover. Z is found by a breadth-first search over the neighbours and
+	 * the match array in O(V + E) time.
+	 * @return an array where cover[v] is true iff v is in the cover
+	 */
+	public boolean[] minimumVertexCover() {
+		boolean[] reached = new boolean[match.length];
+		int head = 0, tail = 0;
+		for(int u = 1; u < n; u++)
+			if(match[u] == NIL) {
+				reached[u] = true;
+				queue[tail++] = u;
+			}
+		while(head < tail) {
+			int u = queue[head++];
+			for(int i = start[u]; i < start[u + 1]; i++) {
+				int v = adj[i];
+				if(reached[v] || match[u] == v)
+					continue;
+				reached[v] = true;
+				//v is matched, since the matching is maximum
+				int w = match[v];
+				if(!reached[w]) {
+					reached[w] = true;
+					queue[tail++] = w;
+				}
+			}
+		}
+		boolean[] cover = new boolean[match.length];
+		for(int v = 1; v < cover.length; v++)
+			cover[v] = v < n ? !reached[v] : reached[v];
+		return cover;
+	}
+	
 	/**
 	 * Returns the size of the matching
 	 */
 	public int size() { return value; }
 	
+	/**
+	 * Returns the number of edges matched by the greedy warm start
+	 */
+	public int warmStart() { return greedy; }
+	
+	/**
+	 * Returns the number of phases that found augmenting paths
+	 */
+	public int phases() { return phases; }
+	
+	/**
+	 * Returns the number of augmenting paths found in a phase
+	 */
+	public int augmentations(int phase) { return phaseAugmentations[phase]; }
+	
+	/**
+	 * Returns the number of L-partition layers of the bfs in a phase, which is the length of
+	 * the shortest augmenting paths in matched edges plus one
+	 */
+	public int layers(int phase) { return phaseLayers[phase]; }
+	
+	/**
+	 * Summarizes the warm start and the phases
+	 */
+	public String statistics() {
+		StringBuilder s = new StringBuilder();
+		s.append(String.format("|M| = %d, warm start %d, %d phases\n", value, greedy, phases));
+		for(int i = 0; i < phases; i++)
+			s.append(String.format("phase %d: %d layers, %d augmentations\n", i + 1, phaseLayers[i], phaseAugmentations[i]));
+		return s.toString();
+	}
+	
 	/**
 	 * Breadth-first search that generates layers
 	 */
 	private boolean bfs() {
-		Queue<Integer> q = new ArrayDeque<Integer>();
+		int head = 0, tail = 0;
 		
 		//initialize distances
 		for(int i = 1; i < n; i++) {
 			if(match[i] == NIL) {
 				dist[i] = 0;
-				q.add(i);
+				queue[tail++] = i;
 			} else
 				dist[i] = INF;
 		}
 		
 		dist[NIL] = INF;
 		
-		while(!q.isEmpty()) {
-			int u = q.poll();
+		while(head < tail) {
+			int u = queue[head++];
+			//paths through u would be longer than the shortest augmenting paths
+			if(dist[u] >= dist[NIL])
+				continue;
 			if(DEBUG) System.out.format("Exploring %d\n", u);
-			for(Edge e : G.edgesOf(u)) {
-				int v = e.other(u);
+			for(int i = start[u]; i < start[u + 1]; i++) {
+				int v = adj[i];
 				//if the matching is not visited, visit it
 				//note that if v has no match, it is a free vertex in R
 				if(dist[match[v]] == INF) {
 					if(DEBUG) System.out.format("%d->%d->%d\n", u, v, match[v]);
 					dist[match[v]] = dist[u] + 1;
 					if(match[v] != NIL)
-						q.add(match[v]);
+						queue[tail++] = match[v];
 				}
 			}
 		}
@@ -120,43 +230,58 @@ public class BipartiteMatching {
 	
 	/**
 	 * Depth-first search on a free vertex, u, following the layers
+	 * The path from u is kept on the stack, with arc[x] the edge taken from each vertex x on it,
+	 * and is flipped when it reaches a free vertex in R.
 	 * @param u a free vertex
 	 */
 	private boolean dfs(int u) {
 
 		if(DEBUG) System.out.format("DFS on %d\n", u);
 		
-		for(Edge e : G.edgesOf(u)) {
-			int v = e.other(u);
-			if(dist[match[v]] == dist[u] + 1) {
+		int top = 0;
+		stack[top++] = u;
+		while(top > 0) {
+			int x = stack[top - 1];
+			if(arc[x] == start[x + 1]) {
+				//at this point, we cannot find an augmenting path on x
+				//set dist[x] to infinity so that we don't visit it on another dfs
+				dist[x] = INF;
+				top--;
+				continue;
+			}
+			int v = adj[arc[x]];
+			if(dist[match[v]] == dist[x] + 1) {
 				//we either have found a free vertex in R
 				//or we've found a matched vertex in R
-				if(match[v] == NIL || dfs(match[v])) {
-					if(DEBUG) System.out.format("matching found (%d, %d)\n", u, v);
-					match[v] = u;
-					match[u] = v;
+				if(match[v] == NIL) {
+					for(int i = top - 1; i >= 0; i--) {
+						int a = stack[i];
+						int b = adj[arc[a]];
+						if(DEBUG) System.out.format("matching found (%d, %d)\n", a, b);
+						match[b] = a;
+						match[a] = b;
+					}
 					return true;
 				}
+				stack[top++] = match[v];
+				continue;
 			}
+			arc[x]++;
 		}
-			
-		//at this point, we cannot find an augmenting path on u
-		//set dist[u] to infinity so that we don't visit it on another dfs
-		dist[u] = INF;
 		return false;
 	}
 	
 	public String toString() {
-		Set<Edge> matching = getMatching();
 		StringBuilder s = new StringBuilder();
 		s.append("graph {\n");
 		s.append("\tnode [shape=circle, color=black, fontcolor=black];\n");
-		for(Edge uv : G.edges()) {
-			if(matching.contains(uv))
-				s.append(String.format("\t%d -- %d [color=blue];\n", uv.from(), uv.to()));
-			else
-				s.append(String.format("\t%d -- %d;\n", uv.from(), uv.to()));
-		}
+		for(int u = 1; u < n; u++)
+			for(int i = start[u]; i < start[u + 1]; i++) {
+				if(match[u] == adj[i])
+					s.append(String.format("\t%d -- %d [color=blue];\n", u, adj[i]));
+				else
+					s.append(String.format("\t%d -- %d;\n", u, adj[i]));
+			}
 		s.append("}");
 		return s.toString();
 	}
@@ -165,17 +290,48 @@ public class BipartiteMatching {
 	 * Finds a maximum matching
 	 */
 	private void hopcroftKarp() {
-		value = 0;
+		queue = new int[n];
+		stack = new int[n];
+		arc = new int[n];
+		value = greedy = greedyMatching();
 		//while there are augmenting paths (can reach 0-node)
 		while(bfs()) {
+			if(phases == phaseAugmentations.length) {
+				phaseAugmentations = Arrays.copyOf(phaseAugmentations, 2 * phases);
+				phaseLayers = Arrays.copyOf(phaseLayers, 2 * phases);
+			}
+			phaseLayers[phases] = dist[NIL];
 			//augment on those paths
+			for(int i = 1; i < n; i++)
+				arc[i] = start[i];
 			for(int i = 1; i < n; i++) {
 				if(match[i] == NIL) {
-					if(dfs(i))
+					if(dfs(i)) {
 						value++;
+						phaseAugmentations[phases]++;
+					}
 				}
 			}
+			phases++;
 		}
+		if(DEBUG) System.out.print(statistics());
+	}
+	
+	/**
+	 * Matches each vertex of L to its first free neighbour, if any
+	 * @return the number of edges matched
+	 */
+	private int greedyMatching() {
+		int matched = 0;
+		for(int u = 1; u < n; u++)
+			for(int i = start[u]; i < start[u + 1]; i++)
+				if(match[adj[i]] == NIL) {
+					match[adj[i]] = u;
+					match[u] = adj[i];
+					matched++;
+					break;
+				}
+		return matched;
 	}
 	
 	public static void main(String[] args) throws FileNotFoundException {
@@ -208,7 +364,7 @@ public class BipartiteMatching {
 			if(F.match[i] != 0)
 				System.out.println(i + "->" + F.match[i]);
 		
-		System.out.println("|M| = " + F.value);
+		System.out.print(F.statistics());
 		
 		T.end();
 		
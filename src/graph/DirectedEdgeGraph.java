@@ -0,0 +1,78 @@
+package graph;
+
+import java.util.Collection;
+import java.util.function.IntPredicate;
+
+/**
+ * A directed graph with |V| vertices numbered 0...|V| - 1 that can report the edges
+ * entering and leaving each vertex.
+ * @author Duncan
+ *
+ * @param <E> edge type
+ */
+public interface DirectedEdgeGraph<E> extends EdgeGraph<E> {
+
+	/**
+	 * @return the number of vertices
+	 */
+	public int order();
+
+	/**
+	 * @return the number of edges
+	 */
+	public int size();
+
+	/**
+	 * Returns all the edges leaving vertex v
+	 */
+	public Collection<E> edgesFrom(int v);
+
+	/**
+	 * Returns all the edges going to vertex v
+	 */
+	public Collection<E> edgesTo(int v);
+
+	/**
+	 * Returns the indegree of a vertex
+	 */
+	public int indegree(int v);
+
+	/**
+	 * Returns the outdegree of a vertex
+	 */
+	public int outdegree(int v);
+
+	/**
+	 * Removes all incoming and outgoing edges on a vertex
+	 */
+	public void clearVertex(int v);
+
+	/**
+	 * Reverses all the edges of the graph
+	 */
+	public void transpose();
+
+	/**
+	 * Removes vertices with no edges and renumbers the remaining vertices
+	 * @return an array mapping old labels to new labels, removed labels have entry -1
+	 */
+	public int[] relabel();
+
+	/**
+	 * Removes vertices with no edges, other than those kept, and renumbers the remaining vertices
+	 * @param keep vertices with no edges that are kept
+	 * @return an array mapping old labels to new labels, removed labels have entry -1
+	 */
+	public int[] relabel(IntPredicate keep);
+
+	/**
+	 * Removes all the edges in the graph
+	 */
+	public void clear();
+
+	/**
+	 * Returns all the edges in the graph
+	 */
+	public Collection<E> edges();
+
+}
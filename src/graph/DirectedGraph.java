@@ -4,7 +4,7 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Stack;
+import java.util.function.IntPredicate;
 
 /**
  * Directed edge-weighted graph
@@ -13,7 +13,7 @@ import java.util.Stack;
  * @param <E> edge type
  */
 public class DirectedGraph<E extends Edge>
-	extends BaseGraph<E> implements EdgeGraph<E> {
+	extends BaseGraph<E> implements DirectedEdgeGraph<E> {
 
 	protected List<List<E>> adjR;	//reverse adjacency list
 	
@@ -72,43 +72,48 @@ public class DirectedGraph<E extends Edge>
 		List<List<E>> tmplist = adj;
 		adj = adjR;
 		adjR = tmplist;
-		for(Edge e : edges())
-			e.reverse();
+		for(List<E> list : adj)
+			for(Edge e : list)
+				e.reverse();
 	}
 	
 	/**
 	 * Calculates an array mapping old labels to new labels, removed labels have entry -1
+	 * Runs in a single pass that builds the compacted adjacency lists along with the map.
 	 * Warning: changes the fields of Edge
 	 */
 	public int[] relabel() {
+		return relabel(v -> false);
+	}
+	
+	/**
+	 * Calculates an array mapping old labels to new labels, keeping the vertices with no edges
+	 * that keep accepts
+	 * Warning: changes the fields of Edge
+	 */
+	public int[] relabel(IntPredicate keep) {
 		int[] map = new int[V];
-		Stack<Integer> remove = new Stack<>();
-		
-		if(indegree(0) == 0 && outdegree(0) == 0) {
-			map[0] = -1;
-		} else
-			map[0] = 0;
-		
-		for(int v = 1; v < V; v++) {
-			if(indegree(v) == 0 && outdegree(v) == 0) {
-				remove.push(v);
-				map[v] = map[v - 1];
-			} else
-				map[v] = map[v - 1]  + 1;
+		List<List<E>> newAdj = new ArrayList<List<E>>(V);
+		List<List<E>> newAdjR = new ArrayList<List<E>>(V);
+		int n = 0;
+		for(int v = 0; v < V; v++) {
+			if(adj.get(v).isEmpty() && adjR.get(v).isEmpty() && !keep.test(v)) {
+				map[v] = -1;
+			} else {
+				map[v] = n++;
+				newAdj.add(adj.get(v));
+				newAdjR.add(adjR.get(v));
+			}
 		}
+		adj = newAdj;
+		adjR = newAdjR;
+		V = n;
 		
-		while(!remove.isEmpty()) {
-			int v = remove.pop();
-			adj.remove(v);
-			adjR.remove(v);
-			map[v] = -1;
-			V--;
-		}
-	
-		for(E e : edges()) {
-			e.u = map[e.u];
-			e.v = map[e.v];
-		}
+		for(List<E> list : adj)
+			for(E e : list) {
+				e.u = map[e.u];
+				e.v = map[e.v];
+			}
 		
 		return map;
 	}
@@ -10,6 +10,13 @@ public class Edge {
 
 	protected int u, v;
 	private boolean reversed;
+	/**
+	 * Position of the edge in the LinkedDirectedGraph it was last added to, -1 if none
+	 * An edge should only be in one such graph at a time. The graph checks the slot against its
+	 * own arrays before using it, so an edge shared between graphs is still found, but by a
+	 * scan of its tail's edges instead of in O(1) time.
+	 */
+	int slot = -1;
 	
 	public Edge(int from, int to) {
 		u = from;
@@ -55,6 +62,11 @@ public class Edge {
         return u == other.u && v == other.v;
     }
 	
+	/**
+	 * Consistent with equals, so equal edges can be found in hash sets
+	 */
+	public int hashCode() { return 31 * u + v; }
+	
 	public String toString() { return String.format("%d-%d", u, v); }
 	
 }
@@ -1,5 +1,7 @@
 package graph;
 
+import java.util.function.Consumer;
+
 /**
  * A graph with |V| vertices numbered 0...|V| - 1, and a set of edges.
  * @author Duncan
@@ -48,6 +50,12 @@ public interface EdgeGraph<E> {
 	 */
 	public Iterable<E> edges();
 	
+	/**
+	 * Visits every edge of the graph in place, without copying the edge list
+	 * @param action called once per edge
+	 */
+	public void forEachEdge(Consumer<? super E> action);
+	
 	/**
 	 * Returns true if u and v are adjacent
 	 * @return
@@ -0,0 +1,444 @@
+package graph;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Directed edge-weighted graph that stores its edges in struct-of-arrays form
+ * Every edge occupies a slot in a set of parallel arrays and is threaded onto an
+ * intrusive doubly linked list of the edges leaving its tail and another list of the edges
+ * entering its head, so removing an edge (or every edge on a vertex) takes O(1) per edge.
+ * Freed slots are reused, and relabel() compacts the arrays. Each edge object remembers its
+ * slot (see Edge.slot), so it should not be added to two graphs at once.
+ * @author Duncan
+ *
+ * @param <E> edge type
+ */
+public class LinkedDirectedGraph<E extends Edge>
+	implements DirectedEdgeGraph<E> {
+
+	private static final int NIL = -1;
+
+	private int V;				//number of vertices
+	private int E;				//number of edges
+
+	//per-vertex arrays
+	private int[] headOut;		//first edge leaving v
+	private int[] headIn;		//first edge entering v
+	private int[] lastOut;		//last edge leaving v
+	private int[] lastIn;		//last edge entering v
+	private int[] outdeg;
+	private int[] indeg;
+
+	//per-edge arrays, indexed by slot
+	private Object[] edge;		//the edge object, null if the slot is free
+	private int[] tail;			//from() of the edge
+	private int[] head;			//to() of the edge
+	private int[] nextOut, prevOut;
+	private int[] nextIn, prevIn;
+	private int free = NIL;		//list of free slots, threaded through nextOut
+	private int used;			//number of slots ever handed out
+
+	/**
+	 * Initializes a graph
+	 * @param V the number of vertices
+	 */
+	public LinkedDirectedGraph(int V) {
+		this.V = V;
+		allocateVertices(V);
+		allocate(16);
+	}
+
+	private void allocateVertices(int V) {
+		headOut = new int[V];
+		headIn = new int[V];
+		lastOut = new int[V];
+		lastIn = new int[V];
+		outdeg = new int[V];
+		indeg = new int[V];
+		Arrays.fill(headOut, NIL);
+		Arrays.fill(headIn, NIL);
+		Arrays.fill(lastOut, NIL);
+		Arrays.fill(lastIn, NIL);
+	}
+
+	private void allocate(int capacity) {
+		edge = new Object[capacity];
+		tail = new int[capacity];
+		head = new int[capacity];
+		nextOut = new int[capacity];
+		prevOut = new int[capacity];
+		nextIn = new int[capacity];
+		prevIn = new int[capacity];
+	}
+
+	private void grow() {
+		int capacity = edge.length * 2;
+		edge = Arrays.copyOf(edge, capacity);
+		tail = Arrays.copyOf(tail, capacity);
+		head = Arrays.copyOf(head, capacity);
+		nextOut = Arrays.copyOf(nextOut, capacity);
+		prevOut = Arrays.copyOf(prevOut, capacity);
+		nextIn = Arrays.copyOf(nextIn, capacity);
+		prevIn = Arrays.copyOf(prevIn, capacity);
+	}
+
+	/**
+	 * Expands the number of vertices in the graph
+	 */
+	public void expand(int capacity) {
+		if(V > capacity)
+			return;
+		headOut = Arrays.copyOf(headOut, capacity);
+		headIn = Arrays.copyOf(headIn, capacity);
+		lastOut = Arrays.copyOf(lastOut, capacity);
+		lastIn = Arrays.copyOf(lastIn, capacity);
+		outdeg = Arrays.copyOf(outdeg, capacity);
+		indeg = Arrays.copyOf(indeg, capacity);
+		Arrays.fill(headOut, V, capacity, NIL);
+		Arrays.fill(headIn, V, capacity, NIL);
+		Arrays.fill(lastOut, V, capacity, NIL);
+		Arrays.fill(lastIn, V, capacity, NIL);
+		V = capacity;
+	}
+
+	/**
+	 * @return the number of vertices
+	 */
+	public int order() { return V; }
+
+	/**
+	 * @return the number of edges
+	 */
+	public int size() { return E; }
+
+	/**
+	 * Checks if graph contains vertex
+	 */
+	public boolean contains(int v) {
+		return v >= 0 && v < V;
+	}
+
+	/**
+	 * Adds an edge to the graph
+	 */
+	public void addEdge(E uv) {
+		int u = uv.from();
+		int v = uv.to();
+		if(!contains(u)) throw new GraphException(u + " is not a vertex in this graph");
+		if(!contains(v)) throw new GraphException(v + " is not a vertex in this graph");
+		int e;
+		if(free != NIL) {
+			e = free;
+			free = nextOut[e];
+		} else {
+			if(used == edge.length)
+				grow();
+			e = used++;
+		}
+		edge[e] = uv;
+		uv.slot = e;
+		tail[e] = u;
+		head[e] = v;
+		//append to the end of both lists
+		nextOut[e] = NIL;
+		prevOut[e] = lastOut[u];
+		if(lastOut[u] != NIL)
+			nextOut[lastOut[u]] = e;
+		else
+			headOut[u] = e;
+		lastOut[u] = e;
+		nextIn[e] = NIL;
+		prevIn[e] = lastIn[v];
+		if(lastIn[v] != NIL)
+			nextIn[lastIn[v]] = e;
+		else
+			headIn[v] = e;
+		lastIn[v] = e;
+		outdeg[u]++;
+		indeg[v]++;
+		E++;
+	}
+
+	/**
+	 * Unlinks the edge in slot e from both lists and frees the slot
+	 */
+	private void unlink(int e) {
+		int u = tail[e];
+		int v = head[e];
+		if(prevOut[e] != NIL)
+			nextOut[prevOut[e]] = nextOut[e];
+		else
+			headOut[u] = nextOut[e];
+		if(nextOut[e] != NIL)
+			prevOut[nextOut[e]] = prevOut[e];
+		else
+			lastOut[u] = prevOut[e];
+		if(prevIn[e] != NIL)
+			nextIn[prevIn[e]] = nextIn[e];
+		else
+			headIn[v] = nextIn[e];
+		if(nextIn[e] != NIL)
+			prevIn[nextIn[e]] = prevIn[e];
+		else
+			lastIn[v] = prevIn[e];
+		((Edge)edge[e]).slot = NIL;
+		edge[e] = null;
+		nextOut[e] = free;
+		free = e;
+		outdeg[u]--;
+		indeg[v]--;
+		E--;
+	}
+
+	/**
+	 * Finds the slot holding an edge equal to uv, or NIL
+	 */
+	private int find(Edge uv) {
+		int e = uv.slot;
+		if(e >= 0 && e < used && edge[e] == uv)
+			return e;
+		int u = uv.from();
+		if(!contains(u))
+			return NIL;
+		for(e = headOut[u]; e != NIL; e = nextOut[e])
+			if(uv.equals(edge[e]))
+				return e;
+		return NIL;
+	}
+
+	/**
+	 * Removes an edge from the graph in O(1) time if uv is the edge object in the graph
+	 */
+	public void removeEdge(E uv) {
+		int e = find(uv);
+		if(e != NIL)
+			unlink(e);
+	}
+
+	/**
+	 * Removes all incoming and outgoing edges on a vertex in O(degree) time
+	 */
+	public void clearVertex(int v) {
+		if(!contains(v)) throw new GraphException(v + " is not a vertex in this graph");
+		while(headOut[v] != NIL)
+			unlink(headOut[v]);
+		while(headIn[v] != NIL)
+			unlink(headIn[v]);
+	}
+
+	/**
+	 * Return the edge between vertices u and v
+	 */
+	@SuppressWarnings("unchecked")
+	public E getEdge(int u, int v) {
+		if(!contains(u)) throw new GraphException(u + " is not a vertex in this graph");
+		if(!contains(v)) throw new GraphException(v + " is not a vertex in this graph");
+		for(int e = headOut[u]; e != NIL; e = nextOut[e])
+			if(head[e] == v)
+				return (E)edge[e];
+		return null;
+	}
+
+	/**
+	 * Checks if two vertices are adjacent to each other
+	 */
+	public boolean isAdjacent(int u, int v) {
+		return (getEdge(u, v) != null);
+	}
+
+	/**
+	 * Finds the transpose of the graph (reverses all the edges)
+	 */
+	public void transpose() {
+		int[] tmp;
+		tmp = headOut; headOut = headIn; headIn = tmp;
+		tmp = lastOut; lastOut = lastIn; lastIn = tmp;
+		tmp = outdeg; outdeg = indeg; indeg = tmp;
+		tmp = tail; tail = head; head = tmp;
+		tmp = nextOut; nextOut = nextIn; nextIn = tmp;
+		tmp = prevOut; prevOut = prevIn; prevIn = tmp;
+		//the free list is threaded through nextOut, so move it over
+		for(int e = free; e != NIL; e = nextIn[e])
+			nextOut[e] = nextIn[e];
+		for(int e = 0; e < used; e++)
+			if(edge[e] != null)
+				((Edge)edge[e]).reverse();
+	}
+
+	/**
+	 * Calculates an array mapping old labels to new labels, removed labels have entry -1
+	 * The edge arrays are compacted at the same time.
+	 * Warning: changes the fields of Edge
+	 */
+	public int[] relabel() {
+		return relabel(v -> false);
+	}
+
+	/**
+	 * Calculates an array mapping old labels to new labels, keeping the vertices with no edges
+	 * that keep accepts
+	 * Warning: changes the fields of Edge
+	 */
+	public int[] relabel(IntPredicate keep) {
+		int[] map = new int[V];
+		int n = 0;
+		for(int v = 0; v < V; v++)
+			map[v] = (indeg[v] == 0 && outdeg[v] == 0 && !keep.test(v)) ? -1 : n++;
+
+		//collect the live edges in the order of their out-lists
+		Object[] live = new Object[E];
+		int k = 0;
+		for(int v = 0; v < V; v++)
+			for(int e = headOut[v]; e != NIL; e = nextOut[e])
+				live[k++] = edge[e];
+
+		V = n;
+		E = 0;
+		used = 0;
+		free = NIL;
+		allocateVertices(n);
+		allocate(Math.max(16, live.length));
+
+		for(int i = 0; i < live.length; i++) {
+			@SuppressWarnings("unchecked")
+			E uv = (E)live[i];
+			uv.u = map[uv.u];
+			uv.v = map[uv.v];
+			addEdge(uv);
+		}
+		return map;
+	}
+
+	/**
+	 * Removes all the edges in the graph
+	 */
+	public void clear() {
+		for(int e = 0; e < used; e++)
+			if(edge[e] != null)
+				((Edge)edge[e]).slot = NIL;
+		Arrays.fill(headOut, NIL);
+		Arrays.fill(headIn, NIL);
+		Arrays.fill(lastOut, NIL);
+		Arrays.fill(lastIn, NIL);
+		Arrays.fill(outdeg, 0);
+		Arrays.fill(indeg, 0);
+		Arrays.fill(edge, 0, used, null);
+		E = 0;
+		used = 0;
+		free = NIL;
+	}
+
+	/**
+	 * Returns all the edges leaving vertex v
+	 */
+	public Collection<E> edgesFrom(int v) {
+		if(!contains(v)) throw new GraphException(v + " is not a vertex in this graph");
+		return new Chain(v, true);
+	}
+
+	/**
+	 * Returns all the edges going to vertex v
+	 */
+	public Collection<E> edgesTo(int v) {
+		if(!contains(v)) throw new GraphException(v + " is not a vertex in this graph");
+		return new Chain(v, false);
+	}
+
+	/**
+	 * Returns all edges incident on v
+	 */
+	public Collection<E> edgesOf(int v) {
+		return edgesFrom(v);
+	}
+
+	/**
+	 * Returns the indegree of a vertex
+	 */
+	public int indegree(int v) {
+		if(!contains(v)) throw new GraphException(v + " is not a vertex in this graph");
+		return indeg[v];
+	}
+
+	/**
+	 * Returns the outdegree of a vertex
+	 */
+	public int outdegree(int v) {
+		if(!contains(v)) throw new GraphException(v + " is not a vertex in this graph");
+		return outdeg[v];
+	}
+
+	/**
+	 * Returns all the edges in the graph
+	 */
+	@SuppressWarnings("unchecked")
+	public Collection<E> edges() {
+		ArrayList<E> edges = new ArrayList<E>(E);
+		for(int v = 0; v < V; v++)
+			for(int e = headOut[v]; e != NIL; e = nextOut[e])
+				edges.add((E)edge[e]);
+		return edges;
+	}
+
+	/**
+	 * Visits every edge in place, in the order of the out-lists
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEachEdge(Consumer<? super E> action) {
+		for(int v = 0; v < V; v++)
+			for(int e = headOut[v]; e != NIL; e = nextOut[e])
+				action.accept((E)edge[e]);
+	}
+
+	/**
+	 * A live view of the out-list or in-list of a vertex
+	 */
+	private class Chain extends AbstractCollection<E> {
+
+		private final int v;
+		private final boolean out;
+
+		Chain(int v, boolean out) {
+			this.v = v;
+			this.out = out;
+		}
+
+		public int size() {
+			return out ? outdeg[v] : indeg[v];
+		}
+
+		public Iterator<E> iterator() {
+			return new Iterator<E>() {
+				int next = out ? headOut[v] : headIn[v];
+				int last = NIL;
+
+				public boolean hasNext() {
+					return next != NIL;
+				}
+
+				@SuppressWarnings("unchecked")
+				public E next() {
+					if(next == NIL)
+						throw new NoSuchElementException();
+					last = next;
+					next = out ? nextOut[next] : nextIn[next];
+					return (E)edge[last];
+				}
+
+				public void remove() {
+					if(last == NIL)
+						throw new IllegalStateException();
+					unlink(last);
+					last = NIL;
+				}
+			};
+		}
+	}
+
+}
@@ -1,6 +1,8 @@
 package graph;
 
 import java.util.LinkedList;
+import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Undirected edge-weighted graph
@@ -32,6 +34,20 @@ public class UndirectedGraph<E extends Edge>
 		adj.get(uv.to()).remove(uv);
 	}
 	
+	/**
+	 * Visits every undirected edge once, in place
+	 */
+	public void forEachEdge(Consumer<? super E> action) {
+		for(int u = 0; u < V; u++) {
+			List<E> list = adj.get(u);
+			for(int i = 0; i < list.size(); i++) {
+				E uv = list.get(i);
+				if(u < uv.other(u))
+					action.accept(uv);
+			}
+		}
+	}
+	
 	/**
 	 * Returns all the undirected edges in the graph
 	 */
@@ -0,0 +1,72 @@
+package nfa;
+
+import java.util.Arrays;
+
+/**
+ * Maps the symbols of an alphabet to dense indices so that per-symbol tables can be
+ * indexed directly. Index 0 is reserved for epsilon and the i-th character of the
+ * alphabet string has index i + 1.
+ * @author duncan
+ *
+ */
+public class Alphabet {
+
+	public static final int EPSILON = 0;
+
+	private final String symbols;
+	private final int[] index;		//index[c] is the index of character c, -1 if not a symbol
+
+	/**
+	 * Creates an alphabet
+	 * @param symbols a string where each character is a symbol
+	 */
+	public Alphabet(String symbols) {
+		this.symbols = symbols;
+		int max = NFA.EPSILON;
+		for(int i = 0; i < symbols.length(); i++)
+			max = Math.max(max, symbols.charAt(i));
+		index = new int[max + 1];
+		Arrays.fill(index, -1);
+		for(int i = symbols.length() - 1; i >= 0; i--)
+			index[symbols.charAt(i)] = i + 1;
+		index[NFA.EPSILON] = EPSILON;
+	}
+
+	/**
+	 * Returns the index of a symbol, EPSILON for the empty string
+	 * or -1 if c is not part of the alphabet
+	 */
+	public int indexOf(char c) {
+		return c < index.length ? index[c] : -1;
+	}
+
+	/**
+	 * Returns the symbol with index i
+	 */
+	public char symbol(int i) {
+		return i == EPSILON ? NFA.EPSILON : symbols.charAt(i - 1);
+	}
+
+	/**
+	 * Checks if c is a symbol of the alphabet (epsilon is not)
+	 */
+	public boolean contains(char c) {
+		return indexOf(c) > EPSILON;
+	}
+
+	/**
+	 * The number of symbols, not counting epsilon
+	 */
+	public int size() { return symbols.length(); }
+
+	/**
+	 * The number of indices, including the one reserved for epsilon
+	 */
+	public int numIndices() { return symbols.length() + 1; }
+
+	/**
+	 * Returns the alphabet as a string
+	 */
+	public String toString() { return symbols; }
+
+}
@@ -0,0 +1,367 @@
+package nfa;
+
+import utils.IntIntIntConsumer;
+import utils.IntSet;
+
+/**
+ * An immutable snapshot of an NFA stored in compressed sparse row (CSR) form
+ * Transitions are kept in primitive arrays grouped by state, once by source state (forward)
+ * and once by target state (reverse), so that analysis passes can scan the transitions
+ * into and out of a state without following references to Transition objects.
+ * Symbols are stored as their indices in the Alphabet, with epsilon at index 0. The
+ * transitions of each state are sorted by symbol and then by the other endpoint, so the
+ * transitions on one symbol form a contiguous range (see outBegin(p, c)).
+ * Snapshots are never modified after construction and may be shared between threads.
+ * @author duncan
+ *
+ */
+public final class CompactNFA {
+
+	private final int n;				//number of states
+	private final Alphabet alphabet;
+
+	private final int[] outStart;		//transitions from p are outStart[p] ... outStart[p + 1] - 1
+	private final int[] outTarget;
+	private final int[] outSymbol;
+
+	private final int[] inStart;		//transitions to p are inStart[p] ... inStart[p + 1] - 1
+	private final int[] inSource;
+	private final int[] inSymbol;
+
+	private final boolean[] initial;
+	private final boolean[] accepting;
+
+	/**
+	 * Builds a snapshot of the NFA in O(n + m + k) time
+	 * @param m the NFA
+	 */
+	public CompactNFA(NFA m) {
+		n = m.numStates();
+		alphabet = m.symbols();
+		int size = m.size();
+		int k = alphabet.numIndices();
+
+		int[] from = new int[size];
+		int[] to = new int[size];
+		int[] sym = new int[size];
+		int[] order = new int[size];
+		int j = 0;
+		for(int p = 0; p < n; p++)
+			for(Transition t : m.transitionsFrom(p)) {
+				from[j] = p;
+				to[j] = t.to();
+				sym[j] = t.symbolIndex();
+				order[j] = j;
+				j++;
+			}
+
+		//forward arrays ordered by (from, symbol, to), by stable counting sorts on each key
+		order = sort(order, to, n);
+		order = sort(order, sym, k);
+		order = sort(order, from, n);
+		outStart = start(from, n);
+		outTarget = new int[size];
+		outSymbol = new int[size];
+		for(int i = 0; i < size; i++) {
+			outTarget[i] = to[order[i]];
+			outSymbol[i] = sym[order[i]];
+		}
+
+		//reverse arrays ordered by (to, symbol, from), continuing from the forward order
+		order = sort(order, sym, k);
+		order = sort(order, to, n);
+		inStart = start(to, n);
+		inSource = new int[size];
+		inSymbol = new int[size];
+		for(int i = 0; i < size; i++) {
+			inSource[i] = from[order[i]];
+			inSymbol[i] = sym[order[i]];
+		}
+
+		initial = new boolean[n];
+		IntSet I = m.initialStates();
+		for(int q = I.next(0); q != -1; q = I.next(q + 1))
+			initial[q] = true;
+		accepting = new boolean[n];
+		IntSet F = m.finalStates();
+		for(int q = F.next(0); q != -1; q = F.next(q + 1))
+			accepting[q] = true;
+	}
+
+	/**
+	 * Stable counting sort of the indices in order by key[i], where 0 <= key[i] < range
+	 */
+	private static int[] sort(int[] order, int[] key, int range) {
+		int[] next = new int[range + 1];
+		for(int i : order)
+			next[key[i] + 1]++;
+		for(int v = 0; v < range; v++)
+			next[v + 1] += next[v];
+		int[] sorted = new int[order.length];
+		for(int i : order)
+			sorted[next[key[i]]++] = i;
+		return sorted;
+	}
+
+	/**
+	 * Offsets of the groups of transitions by state, where state[i] is the state of transition i
+	 */
+	private static int[] start(int[] state, int n) {
+		int[] start = new int[n + 1];
+		for(int p : state)
+			start[p + 1]++;
+		for(int p = 0; p < n; p++)
+			start[p + 1] += start[p];
+		return start;
+	}
+
+	/**
+	 * Creates a view of c with every transition reversed
+	 */
+	private CompactNFA(CompactNFA c) {
+		n = c.n;
+		alphabet = c.alphabet;
+		outStart = c.inStart;
+		outTarget = c.inSource;
+		outSymbol = c.inSymbol;
+		inStart = c.outStart;
+		inSource = c.outTarget;
+		inSymbol = c.outSymbol;
+		initial = c.accepting;
+		accepting = c.initial;
+	}
+
+	/**
+	 * Returns the reverse automaton in O(1) time
+	 * The view shares its arrays with this snapshot: forward and reverse transitions trade
+	 * places, and so do the initial and final states.
+	 */
+	public CompactNFA reverse() {
+		return new CompactNFA(this);
+	}
+
+	/**
+	 * Returns the alphabet
+	 */
+	public Alphabet alphabet() { return alphabet; }
+
+	/**
+	 * The number of symbol indices, including epsilon at index 0
+	 */
+	public int numSymbols() { return alphabet.numIndices(); }
+
+	/**
+	 * Returns the symbol with index i
+	 */
+	public char symbol(int i) {
+		return alphabet.symbol(i);
+	}
+
+	/**
+	 * The number of states in the automaton
+	 */
+	public int numStates() { return n; }
+
+	/**
+	 * The number of transitions in the automaton
+	 */
+	public int size() { return outTarget.length; }
+
+	public boolean isInitial(int q) { return initial[q]; }
+
+	public boolean isFinal(int q) { return accepting[q]; }
+
+	/**
+	 * Index of the first transition leaving p
+	 */
+	public int outBegin(int p) { return outStart[p]; }
+
+	/**
+	 * One past the index of the last transition leaving p
+	 */
+	public int outEnd(int p) { return outStart[p + 1]; }
+
+	/**
+	 * Index of the first transition leaving p on the symbol with index c
+	 */
+	public int outBegin(int p, int c) {
+		return firstSymbolAtLeast(outSymbol, outStart[p], outStart[p + 1], c);
+	}
+
+	/**
+	 * One past the index of the last transition leaving p on the symbol with index c
+	 */
+	public int outEnd(int p, int c) {
+		return firstSymbolAtLeast(outSymbol, outStart[p], outStart[p + 1], c + 1);
+	}
+
+	/**
+	 * Target of the i-th forward transition
+	 */
+	public int outTarget(int i) { return outTarget[i]; }
+
+	/**
+	 * Symbol index of the i-th forward transition
+	 */
+	public int outSymbol(int i) { return outSymbol[i]; }
+
+	/**
+	 * Index of the first transition entering p
+	 */
+	public int inBegin(int p) { return inStart[p]; }
+
+	/**
+	 * One past the index of the last transition entering p
+	 */
+	public int inEnd(int p) { return inStart[p + 1]; }
+
+	/**
+	 * Index of the first transition entering p on the symbol with index c
+	 */
+	public int inBegin(int p, int c) {
+		return firstSymbolAtLeast(inSymbol, inStart[p], inStart[p + 1], c);
+	}
+
+	/**
+	 * One past the index of the last transition entering p on the symbol with index c
+	 */
+	public int inEnd(int p, int c) {
+		return firstSymbolAtLeast(inSymbol, inStart[p], inStart[p + 1], c + 1);
+	}
+
+	/**
+	 * Source of the i-th reverse transition
+	 */
+	public int inSource(int i) { return inSource[i]; }
+
+	/**
+	 * Symbol index of the i-th reverse transition
+	 */
+	public int inSymbol(int i) { return inSymbol[i]; }
+
+	/**
+	 * Binary search for the first index in [lo, hi) whose symbol is at least c
+	 */
+	private static int firstSymbolAtLeast(int[] symbols, int lo, int hi, int c) {
+		while(lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if(symbols[mid] < c)
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	public int outdegree(int p) { return outStart[p + 1] - outStart[p]; }
+
+	public int indegree(int p) { return inStart[p + 1] - inStart[p]; }
+
+	/**
+	 * Visits every transition as (from, to, symbol index), grouped by source state
+	 */
+	public void forEachTransition(IntIntIntConsumer action) {
+		for(int p = 0; p < n; p++)
+			for(int i = outStart[p]; i < outStart[p + 1]; i++)
+				action.accept(p, outTarget[i], outSymbol[i]);
+	}
+
+	/**
+	 * Marks the states that are reachable from an initial state and can reach a final state
+	 * @return array where useful[q] is true iff q lies on a path from an initial to a final state
+	 */
+	public boolean[] usefulStates() {
+		boolean[] reachable = reachableFrom(initial, outStart, outTarget);
+		boolean[] coreachable = reachableFrom(accepting, inStart, inSource);
+		for(int q = 0; q < n; q++)
+			reachable[q] &= coreachable[q];
+		return reachable;
+	}
+
+	/**
+	 * Marks the states reachable from the sources by a depth-first search over one direction
+	 * of the CSR arrays
+	 */
+	private boolean[] reachableFrom(boolean[] sources, int[] start, int[] adj) {
+		boolean[] marked = new boolean[n];
+		int[] stack = new int[n];
+		int top = 0;
+		for(int q = 0; q < n; q++)
+			if(sources[q]) {
+				marked[q] = true;
+				stack[top++] = q;
+			}
+		while(top > 0) {
+			int p = stack[--top];
+			for(int i = start[p]; i < start[p + 1]; i++)
+				if(!marked[adj[i]]) {
+					marked[adj[i]] = true;
+					stack[top++] = adj[i];
+				}
+		}
+		return marked;
+	}
+
+	/**
+	 * Simulates the string on the automaton
+	 * @param s the input string
+	 * @return true if the automaton accepts the input string, false otherwise
+	 */
+	public boolean accepts(String s) {
+		boolean[] marked = new boolean[n];
+		int[] current = new int[n];
+		int[] stack = new int[n];
+		int size = 0;
+		for(int q = 0; q < n; q++)
+			if(initial[q]) {
+				marked[q] = true;
+				current[size++] = q;
+			}
+		size = epsilonClosure(current, size, marked, stack);
+		for(int k = 0; k < s.length() && size > 0; k++) {
+			int c = alphabet.indexOf(s.charAt(k));
+			if(c <= Alphabet.EPSILON)
+				return false;
+			int[] next = stack;
+			int nextSize = 0;
+			for(int j = 0; j < size; j++)
+				marked[current[j]] = false;
+			for(int j = 0; j < size; j++) {
+				int p = current[j];
+				for(int i = outStart[p]; i < outStart[p + 1]; i++)
+					if(outSymbol[i] == c && !marked[outTarget[i]]) {
+						marked[outTarget[i]] = true;
+						next[nextSize++] = outTarget[i];
+					}
+			}
+			stack = current;
+			current = next;
+			size = epsilonClosure(current, nextSize, marked, stack);
+		}
+		for(int j = 0; j < size; j++)
+			if(accepting[current[j]])
+				return true;
+		return false;
+	}
+
+	/**
+	 * Extends the marked states in set[0 .. size - 1] with all states reachable by epsilon transitions
+	 * @return the new size of the set
+	 */
+	private int epsilonClosure(int[] set, int size, boolean[] marked, int[] stack) {
+		int top = 0;
+		for(int j = 0; j < size; j++)
+			stack[top++] = set[j];
+		while(top > 0) {
+			int p = stack[--top];
+			for(int i = outStart[p]; i < outStart[p + 1]; i++)
+				if(outSymbol[i] == Alphabet.EPSILON && !marked[outTarget[i]]) {
+					marked[outTarget[i]] = true;
+					set[size++] = outTarget[i];
+					stack[top++] = outTarget[i];
+				}
+		}
+		return size;
+	}
+
+}
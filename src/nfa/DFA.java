@@ -2,9 +2,10 @@ package nfa;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.HashSet;
 import java.util.Set;
 
+import utils.IntSet;
+
 /**
  * Represents a deterministic finite automaton (DFA) as a subclass of NFA
  * Unlike NFA, this class has only one initial state and will only allow a state to have one
@@ -24,7 +25,7 @@ public class DFA extends NFA {
 	 * @param finalStates the set of final states
 	 */
 	public DFA(int numStates, String alphabet, int startState, Set<Integer> finalStates) {
-		super(numStates, alphabet, new HashSet<Integer>(1), finalStates);
+		super(numStates, alphabet, new IntSet(), finalStates);
 		q0 = startState;
 		I.add(q0);
 	}
@@ -35,8 +36,7 @@ public class DFA extends NFA {
 	 */
 	public DFA(DFA m) {
 		super(m);
-		for(int i : initialStates())
-			q0 = i;
+		q0 = initialStates().next(0);
 	}
 
 	/**
@@ -55,8 +55,7 @@ public class DFA extends NFA {
 		super(file);
 		if(initialStates().size() > 1)
 			throw new NFAException("A DFA cannot have more than one initial state");
-		for(int i : initialStates())
-			q0 = i;
+		q0 = initialStates().next(0);
 	}
 	
 	/**
@@ -74,7 +73,7 @@ public class DFA extends NFA {
 	protected void checkAddTransition(Transition t, int i) {
 		if(t.symbol() == EPSILON)
 			throw new NFAException("DFAs cannot have epsilon transitions");
-		if(transitionsFrom(t.from()).contains(t))
+		if(hasTransition(t.from(), t.to(), i))
 			throw new NFAException("there is already a transition with symbol " + t.symbol() + " from " + t.from());
 	}
 	
@@ -2,16 +2,23 @@ package nfa;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Queue;
+import java.util.Arrays;
 import java.util.Set;
 
+import nfa.io.BinaryNFA;
+import nfa.io.MappedNFA;
 import utils.DisjointSets;
+import utils.PairQueue;
+import utils.PairTable;
+import utils.PairTables;
+import utils.RowBatch;
 
 
 public class DFAMinimization {
 
+	private static final int ROWS = 1 << 18;	//pairs set in the order of their rows at a time when the table is off the heap
+
 	/**
 	 * Finds the minimum DFA by merging equivalent states
 	 * Sets relabel to true (see overloaded method)
@@ -36,13 +43,13 @@ public class DFAMinimization {
 //		A.relabel();
 		
 		int n = A.numStates();
-		boolean[][] table = tableFillingAlgorithm(A);
+		PairTable table = tableFillingAlgorithm(A.snapshot());
 		
 		DisjointSets sets = new DisjointSets(n);
 		
 		for(int i = 0; i < n; i++) {
 			for(int j = i + 1; j < n; j++)
-				if(!table[i][j]) {
+				if(!table.get(i, j)) {
 					sets.union(i, j);
 				}
 		}
@@ -66,63 +73,124 @@ public class DFAMinimization {
 
 	
 	/**
-	 * Fills in a boolean table where table[p][q] = false iff p and q are equivalent states
-	 * @param a
+	 * Fills in a table where table.get(p, q) is false iff p and q are equivalent states
+	 * The table is moved off the heap if it does not fit in PairTables.defaultHeapBudget.
+	 * @param a snapshot of the DFA
 	 * @return
 	 */
-	private static boolean[][] tableFillingAlgorithm(DFA a) {
+	private static PairTable tableFillingAlgorithm(CompactNFA a) {
 		int n = a.numStates();
-		char[] alphabet = a.alphabet().toCharArray();
+		int k = a.numSymbols();
 		
-		boolean[][] delta = new boolean[n][alphabet.length];
+		boolean[][] delta = new boolean[n][k];
 		for(int p = 0; p < n; p++) {
-			for(Transition t : a.transitionsFrom(p)) {
-				delta[p][a.alphabet().indexOf(t.symbol())] = true;
+			for(int i = a.outBegin(p); i < a.outEnd(p); i++) {
+				delta[p][a.outSymbol(i)] = true;
+			}
+		}
+		
+		PairTables tables = new PairTables();
+		PairTable table = tables.create(n);
+		PairQueue queue = new PairQueue();
+		if(tables.offHeap()) {
+			//seed rules 1 and 2 row by row instead of queueing every seeded pair, and set the pairs
+			//that rule 3 marks in batches ordered by their rows, so that the table is paged in sequentially
+			RowBatch batch = new RowBatch();
+			for(int p = 0; p < n; p++)
+				for(int q = 0; q < p; q++)
+					if(distinguishable(a, delta, p, q) && table.set(p, q)) {
+						predecessors(a, batch, p, q);
+						if(batch.size() >= ROWS)
+							flush(table, queue, batch);
+					}
+			flush(table, queue, batch);
+			while(!queue.isEmpty()) {
+				long pair = queue.poll();
+				predecessors(a, batch, PairQueue.first(pair), PairQueue.second(pair));
+				if(batch.size() >= ROWS || queue.isEmpty())
+					flush(table, queue, batch);
 			}
+			return table;
 		}
 		
-		boolean[][] table = new boolean[n][n];
-		Queue<Tuple> queue = new ArrayDeque<>();
-		for(int f : a.finalStates())
+		for(int f = 0; f < n; f++) {
+			if(!a.isFinal(f))
+				continue;
 			for(int i = n - 1; i >= 0; i--)
-				if(i != f && !a.finalStates().contains(i)) {
-					table[f][i] = true;
-					table[i][f] = true;
-					queue.add(new Tuple(f, i));
+				if(i != f && !a.isFinal(i)) {
+					table.set(f, i);
+					queue.add(f, i);
 				}
+		}
 		
 		for(int p = 0; p < n; p++)
 			for(int q = p + 1; q < n; q++)
-				for(int i = 0; i < alphabet.length; i++)
-					if(!table[p][q] && delta[p][i] != delta[q][i]) {
-						table[p][q] = true;
-						table[q][p] = true;
-						queue.add(new Tuple(p, q));
+				for(int i = 0; i < k; i++)
+					if(!table.get(p, q) && delta[p][i] != delta[q][i]) {
+						table.set(p, q);
+						queue.add(p, q);
 					}
 		
 		while(!queue.isEmpty()) {
-			Tuple pair = queue.remove();
-			int p = pair.p();
-			int q = pair.q();
-			for(Transition t : a.transitionsTo(p))
-				for(Transition u : a.transitionsTo(q)) {
-					if(t.symbol() == u.symbol()) {
-						int r = t.from();
-						int s = u.from();
-						if(!table[r][s] && r != s) {
-							table[r][s] = true;
-							table[s][r] = true;
-							queue.add(new Tuple(r, s));
-							
-						}
-					}
-				}
+			long pair = queue.poll();
+			markPredecessors(a, table, queue, PairQueue.first(pair), PairQueue.second(pair));
 		}
 		
 		return table;
 		
 	}
 	
+	/**
+	 * Marks the pairs of states going to p and q on the same symbol as non-equivalent
+	 */
+	private static void markPredecessors(CompactNFA a, PairTable table, PairQueue queue, int p, int q) {
+		for(int t = a.inBegin(p); t < a.inEnd(p); t++)
+			for(int u = a.inBegin(q); u < a.inEnd(q); u++) {
+				if(a.inSymbol(t) == a.inSymbol(u)) {
+					int r = a.inSource(t);
+					int s = a.inSource(u);
+					if(r != s && table.set(r, s)) {
+						queue.add(r, s);
+						
+					}
+				}
+			}
+	}
+	
+	/**
+	 * Checks if p and q are non-equivalent by rule 1 (one is final) or rule 2 (one has a
+	 * transition on a symbol that the other has none on)
+	 */
+	private static boolean distinguishable(CompactNFA a, boolean[][] delta, int p, int q) {
+		return a.isFinal(p) != a.isFinal(q) || !Arrays.equals(delta[p], delta[q]);
+	}
+	
+	/**
+	 * Sets the pairs of a batch in the order of their rows, queueing the ones that were not set
+	 */
+	private static void flush(PairTable table, PairQueue queue, RowBatch batch) {
+		batch.sort();
+		for(int i = 0; i < batch.size(); i++) {
+			long pair = batch.first(i);
+			if(table.set(PairQueue.first(pair), PairQueue.second(pair)))
+				queue.add(pair);
+		}
+		batch.clear();
+	}
+	
+	/**
+	 * Adds the pairs of states going to p and q on the same symbol to a batch, in their rows
+	 */
+	private static void predecessors(CompactNFA a, RowBatch batch, int p, int q) {
+		for(int t = a.inBegin(p); t < a.inEnd(p); t++)
+			for(int u = a.inBegin(q); u < a.inEnd(q); u++) {
+				int r = a.inSource(t);
+				int s = a.inSource(u);
+				if(a.inSymbol(t) == a.inSymbol(u) && r != s)
+					batch.add(Math.max(r, s), PairQueue.pack(r, s), 0);
+			}
+	}
+	
 	public static void main(String[] args) {
 		
 		if(args.length == 0) {
@@ -132,10 +200,11 @@ public class DFAMinimization {
 		String inFile = args[0];
 		
 		try {
-			DFA a = new DFA(new File(inFile));
+			File file = new File(inFile);
+			DFA a = BinaryNFA.isBinary(file) ? new MappedNFA(file).toDFA() : new DFA(file);
 			DFA m = new DFA(a);
 			DFAMinimization.minimize(m);
-			System.out.print(m);
+			m.writeTo(System.out);
 		} catch(IOException e) {
 			System.out.println(e);
 		} catch(NFAException e) {
@@ -0,0 +1,308 @@
+package nfa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+
+import utils.DisjointSets;
+import utils.PairQueue;
+import utils.TriangularBitMatrix;
+
+/**
+ * Keeps the left and right equivalences of an NFA up to date while it is edited
+ * The equivalences are the ones NFAEquivalence computes, but on the automaton as it is: it
+ * is not trimmed or relabelled, so the state numbers stay valid between edits.
+ * The object listens to the automaton (see NFA.addListener). Whether two states are right-
+ * equivalent only depends on the states reachable from them, so a change to the transitions
+ * of u can only affect the pairs involving a state that reaches u. Those pairs are reset to
+ * equivalent, checked against the rules of NFAEquivalence and the new non-equivalent pairs
+ * are propagated with the rule-3 worklist; the rest of the table is kept. When the region
+ * is so large that resetting its pairs costs more than the automaton has transitions, the
+ * table is rebuilt from partition refinement instead. Left-equivalence is maintained the
+ * same way with the transitions reversed. An edit that leaves u with another transition on
+ * the same symbol to an equivalent state changes nothing and is skipped. Every state also
+ * carries a class label; only the labels of the region are reassigned after an edit, so the
+ * classes are read back in O(n) time. Renumbering or reversing the automaton, or merging
+ * states, recomputes both tables from scratch.
+ * @author duncan
+ *
+ */
+public class IncrementalEquivalence implements TransitionListener {
+
+	private final NFA M;
+	private Side right;
+	private Side left;
+
+	/**
+	 * Computes the equivalences of the automaton and starts following its changes
+	 * @param automaton
+	 */
+	public IncrementalEquivalence(NFA automaton) {
+		M = automaton;
+		recompute();
+		M.addListener(this);
+	}
+
+	/**
+	 * Stops following the changes of the automaton
+	 */
+	public void detach() {
+		M.removeListener(this);
+	}
+
+	/**
+	 * Returns NFA
+	 */
+	public NFA getNFA() { return M; }
+
+	/**
+	 * Returns left union-find structure
+	 */
+	public DisjointSets getLeft() { return left.classes(); }
+
+	/**
+	 * Returns right union-find structure
+	 */
+	public DisjointSets getRight() { return right.classes(); }
+
+	/**
+	 * Checks if states u and v are right-equivalent
+	 */
+	public boolean rightEquivalent(int u, int v) { return right.areEquivalent(u, v); }
+
+	/**
+	 * Checks if states u and v are left-equivalent
+	 */
+	public boolean leftEquivalent(int u, int v) { return left.areEquivalent(u, v); }
+
+	public void transitionAdded(int u, int v, int symbolIndex) {
+		right.update(u, v, symbolIndex);
+		left.update(v, u, symbolIndex);
+	}
+
+	public void transitionRemoved(int u, int v, int symbolIndex) {
+		right.update(u, v, symbolIndex);
+		left.update(v, u, symbolIndex);
+	}
+
+	public void statesChanged() {
+		recompute();
+	}
+
+	private void recompute() {
+		CompactNFA C = M.snapshot();
+		right = new Side(false, C);
+		left = new Side(true, C);
+	}
+
+	/**
+	 * The table of non-equivalent pairs of one direction of the automaton
+	 * The left side reads every transition backwards and takes the initial states as final.
+	 */
+	private class Side {
+
+		private final boolean reverse;
+		private final int n;
+		private TriangularBitMatrix table;		//true if states are non-equivalent
+		private int[] label;					//equal for equivalent states
+		private int nextLabel;					//labels from here on are unused
+		private DisjointSets classes;			//cached classes, null after a change
+
+		Side(boolean reverse, CompactNFA C) {
+			this.reverse = reverse;
+			n = M.numStates();
+			rebuild(C);
+		}
+
+		/**
+		 * Fills the table from the classes found by partition refinement on a snapshot
+		 */
+		private void rebuild(CompactNFA C) {
+			DisjointSets uf = new PartitionRefinement(reverse ? C.reverse() : C).compute();
+			table = new TriangularBitMatrix(n);
+			table.fill();
+			//list the states of each class and clear the pairs within it
+			int[] head = new int[n];
+			int[] next = new int[n];
+			Arrays.fill(head, -1);
+			for(int p = n - 1; p >= 0; p--) {
+				int r = uf.find(p);
+				next[p] = head[r];
+				head[r] = p;
+			}
+			for(int p = 0; p < n; p++)
+				for(int q = next[p]; q != -1; q = next[q])
+					table.clear(p, q);
+			label = new int[n];
+			for(int p = 0; p < n; p++)
+				label[p] = uf.find(p);
+			nextLabel = n;
+			classes = uf;
+		}
+
+		private Collection<Transition> out(int p) {
+			return reverse ? M.transitionsTo(p) : M.transitionsFrom(p);
+		}
+
+		private Collection<Transition> in(int p) {
+			return reverse ? M.transitionsFrom(p) : M.transitionsTo(p);
+		}
+
+		private int head(Transition t) {
+			return reverse ? t.from() : t.to();
+		}
+
+		private int tail(Transition t) {
+			return reverse ? t.to() : t.from();
+		}
+
+		private boolean isFinal(int p) {
+			return reverse ? M.isInitial(p) : M.isFinal(p);
+		}
+
+		boolean areEquivalent(int u, int v) {
+			return !table.get(u, v);
+		}
+
+		/**
+		 * Returns the classes, rebuilding them from the labels if they changed since the last call
+		 */
+		DisjointSets classes() {
+			if(classes == null) {
+				DisjointSets uf = new DisjointSets(n);
+				HashMap<Integer, Integer> first = new HashMap<>();		//first state with each label
+				for(int p = 0; p < n; p++) {
+					Integer q = first.putIfAbsent(label[p], p);
+					if(q != null)
+						uf.union(q, p);
+				}
+				classes = uf;
+			}
+			return classes;
+		}
+		
+		/**
+		 * Gives the states of the region the label of an equivalent state outside it, or a new
+		 * label shared with the equivalent states of the region
+		 * Pairs outside the region did not change, so the labels outside it are still valid.
+		 */
+		private void relabel(List<Integer> region, boolean[] affected) {
+			for(int p : region)
+				label[p] = -1;
+			for(int i = 0; i < region.size(); i++) {
+				int p = region.get(i);
+				if(label[p] != -1)
+					continue;
+				int l = -1;
+				for(int q = 0; q < n && l == -1; q++)
+					if(!affected[q] && !table.get(p, q))
+						l = label[q];
+				if(l == -1)
+					l = nextLabel++;
+				label[p] = l;
+				for(int j = i + 1; j < region.size(); j++) {
+					int r = region.get(j);
+					if(label[r] == -1 && !table.get(p, r))
+						label[r] = l;
+				}
+			}
+		}
+
+		/**
+		 * Updates the table after a transition u -> v on symbol c was added or removed,
+		 * reading the transition in the direction of this side
+		 */
+		void update(int u, int v, int c) {
+			for(Transition t : out(u))
+				if(t.symbolIndex() == c && head(t) != v && areEquivalent(head(t), v))
+					return;
+			classes = null;
+
+			//states that reach u, unless there are too many to reset
+			long budget = M.size() + n;
+			boolean[] affected = new boolean[n];
+			List<Integer> region = new ArrayList<>();
+			affected[u] = true;
+			region.add(u);
+			for(int i = 0; i < region.size(); i++) {
+				if((long)region.size() * n > budget) {
+					rebuild(M.snapshot());
+					return;
+				}
+				for(Transition t : in(region.get(i)))
+					if(!affected[tail(t)]) {
+						affected[tail(t)] = true;
+						region.add(tail(t));
+					}
+			}
+
+			//reset the pairs involving the region, applying rule 1
+			for(int p : region)
+				for(int q = 0; q < n; q++)
+					if(q != p) {
+						if(isFinal(p) != isFinal(q))
+							table.set(p, q);
+						else
+							table.clear(p, q);
+					}
+			//rules 2 and 3 on the reset pairs, then propagate
+			PairQueue Q = new PairQueue(n);
+			for(int p : region)
+				for(int q = 0; q < n; q++)
+					if(q != p && !(affected[q] && q < p) && !table.get(p, q))
+						if(!simulates(p, q) || !simulates(q, p)) {
+							table.set(p, q);
+							Q.add(p, q);
+						}
+			while(!Q.isEmpty()) {
+				long pair = Q.poll();
+				rule3(Q, PairQueue.first(pair), PairQueue.second(pair));
+				rule3(Q, PairQueue.second(pair), PairQueue.first(pair));
+			}
+			relabel(region, affected);
+		}
+
+		/**
+		 * Checks if every transition of p is matched by a transition of q on the same symbol
+		 * to an equivalent state
+		 */
+		private boolean simulates(int p, int q) {
+			for(Transition t : out(p))
+				if(!hasEquivalentSuccessor(q, t.symbolIndex(), head(t)))
+					return false;
+			return true;
+		}
+
+		/**
+		 * Finds non-equivalent states given two non-equivalent states p0 and q0
+		 */
+		private void rule3(PairQueue Q, int p0, int q0) {
+			for(Transition tp : in(p0)) {
+				int c = tp.symbolIndex();
+				int p = tail(tp);
+				for(Transition tq : in(q0)) {
+					int q = tail(tq);
+					if(tq.symbolIndex() != c || p == q || table.get(p, q))
+						continue;
+					if(hasEquivalentSuccessor(q, c, p0))
+						continue;
+					table.set(p, q);
+					Q.add(p, q);
+				}
+			}
+		}
+
+		/**
+		 * Checks if q has a transition on the symbol with index c to a state equivalent to p
+		 */
+		private boolean hasEquivalentSuccessor(int q, int c, int p) {
+			for(Transition t : out(q))
+				if(t.symbolIndex() == c && areEquivalent(p, head(t)))
+					return true;
+			return false;
+		}
+	}
+
+}
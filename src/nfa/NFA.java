@@ -3,12 +3,21 @@ package nfa;
 import graph.*;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
-import java.util.Map.Entry;
+
+import nfa.io.TextOutput;
+import utils.IntIntIntConsumer;
+import utils.IntSet;
 
 
 /**
@@ -20,25 +29,55 @@ public class NFA {
 	
 	public static final char EPSILON = 'ɛ';
 	
-	private DirectedGraph<Transition> G;
-	protected String alphabet;			//alphabet
-	protected Set<Integer> I;	//initial states
-	protected Set<Integer> F;	//final states
+	/**
+	 * Graph implementations that can back the automaton
+	 * ADJACENCY_LIST: array lists of transitions per state (DirectedGraph)
+	 * LINKED: struct-of-arrays with O(1) transition removal (LinkedDirectedGraph), suited to
+	 * automata with high-degree states that are merged or cleared
+	 */
+	public enum GraphType { ADJACENCY_LIST, LINKED }
+	
+	/**
+	 * The graph implementation used by constructors that do not specify one
+	 */
+	public static GraphType defaultGraphType = GraphType.ADJACENCY_LIST;
 	
+	private DirectedEdgeGraph<Transition> G;
+	protected Alphabet alphabet;		//alphabet
+	protected IntSet I;		//initial states
+	protected IntSet F;		//final states
+	
+	private TransitionSet present = new TransitionSet(16);	//index of transitions for duplicate checks
 	private boolean reversed = false;		//true if automaton is reversed
+	private List<TransitionListener> listeners = new ArrayList<>(0);
+	private boolean merging = false;		//true while a merge runs, which only reports statesChanged
 	
 	/**
 	 * Constructs an NFA
+	 * The state sets are used directly if they are IntSets, otherwise they are copied.
 	 * @param numStates the number of states
 	 * @param alphabet a string specifying the alphabet where each character is a symbol
 	 * @param initialStates set of initial states
 	 * @param finalStates set of final states
 	 */
 	public NFA(int numStates, String alphabet, Set<Integer> initialStates, Set<Integer> finalStates) {
-		G = new DirectedGraph<>(numStates);
-		this.alphabet = alphabet;
-		I = initialStates;
-		F = finalStates;
+		this(numStates, alphabet, initialStates, finalStates, defaultGraphType);
+	}
+	
+	/**
+	 * Constructs an NFA backed by the given graph implementation
+	 * @param numStates the number of states
+	 * @param alphabet a string specifying the alphabet where each character is a symbol
+	 * @param initialStates set of initial states
+	 * @param finalStates set of final states
+	 * @param type the graph implementation
+	 */
+	public NFA(int numStates, String alphabet, Set<Integer> initialStates, Set<Integer> finalStates,
+			GraphType type) {
+		G = newGraph(type, numStates);
+		this.alphabet = new Alphabet(alphabet);
+		I = initialStates instanceof IntSet ? (IntSet)initialStates : new IntSet(initialStates);
+		F = finalStates instanceof IntSet ? (IntSet)finalStates : new IntSet(finalStates);
 	}
 	
 	/**
@@ -47,15 +86,15 @@ public class NFA {
 	 * @param alphabet
 	 */
 	public NFA(String regex, String alphabet) {
-		this.alphabet = alphabet;
+		this.alphabet = new Alphabet(alphabet);
 		regex = '(' + regex + ')';
 		char[] re = regex.toCharArray();
 		
-		G = new DirectedGraph<>(re.length + 1);
+		G = newGraph(defaultGraphType, re.length + 1);
 		
-		I = new HashSet<>(1);
+		I = new IntSet();
 		I.add(0);
-		F = new HashSet<>(1);
+		F = new IntSet();
 		F.add(re.length);
 		
 		Stack<Integer> stack = new Stack<>();
@@ -112,13 +151,13 @@ public class NFA {
 		line = br.readLine();
 		//read no. of states
 		int numStates = Integer.parseInt(line);
-		alphabet = br.readLine();
+		alphabet = new Alphabet(br.readLine());
 		
 		//read alphabet
 		String[] parts;
 		
-		I = new HashSet<Integer>();
-		F = new HashSet<Integer>();
+		I = new IntSet();
+		F = new IntSet();
 		
 		//read initial states
 		line = br.readLine();
@@ -132,7 +171,7 @@ public class NFA {
 		for(int i = 0; i < parts.length; i++)
 			F.add(Integer.parseInt(parts[i]));
 		
-		G = new DirectedGraph<>(numStates);
+		G = newGraph(defaultGraphType, numStates);
 		
 		//read transitions
 		while((line = br.readLine()) != null) {
@@ -165,15 +204,31 @@ public class NFA {
 	 */
 	public NFA(NFA m) {
 		alphabet = m.alphabet;
-		I = new HashSet<>();
-		for(int i : m.initialStates())
-			I.add(i);
-		F = new HashSet<>();
-		for(int i : m.finalStates())
-			F.add(i);
-		G = new DirectedGraph<>(m.numStates());
-		for(Transition t : m.transitions())
-			G.addEdge(new Transition(t));
+		I = new IntSet(m.I);
+		F = new IntSet(m.F);
+		G = newGraph(m.graphType(), m.numStates());
+		present = new TransitionSet(m.size());
+		m.G.forEachEdge(t -> {
+			Transition copy = new Transition(t);
+			G.addEdge(copy);
+			indexAdd(copy);
+		});
+	}
+	
+	/**
+	 * Creates an empty graph of the given type
+	 */
+	private static DirectedEdgeGraph<Transition> newGraph(GraphType type, int numStates) {
+		if(type == GraphType.LINKED)
+			return new LinkedDirectedGraph<>(numStates);
+		return new DirectedGraph<>(numStates);
+	}
+	
+	/**
+	 * Returns the graph implementation backing the automaton
+	 */
+	public GraphType graphType() {
+		return G instanceof LinkedDirectedGraph ? GraphType.LINKED : GraphType.ADJACENCY_LIST;
 	}
 	
 	/**
@@ -183,7 +238,7 @@ public class NFA {
 		boolean[] marked = new boolean[numStates()];
 		//DFS on initial states
 		Stack<Integer> stack = new Stack<Integer>();
-		for(int q : initialStates()) {
+		for(int q = I.next(0); q != -1; q = I.next(q + 1)) {
 			stack.push(q);
 			marked[q] = true;
 		}
@@ -203,14 +258,16 @@ public class NFA {
 	}
 	
 	/**
-	 * Trims the NFA
+	 * Trims the NFA: removes states that are not reachable from an initial state
+	 * or cannot reach a final state, then relabels
+	 * @return the new number of each state, -1 if it was removed (see relabel())
 	 */
-	public void trim() {
-		removeUnreachableStates();
-		reverse();
-		removeUnreachableStates();
-		reverse();
-		relabel();
+	public int[] trim() {
+		boolean[] useful = snapshot().usefulStates();
+		for(int i = 0; i < numStates(); i++)
+			if(!useful[i])
+				clearVertex(i);
+		return relabel();
 	}
 	
 	/**
@@ -219,47 +276,15 @@ public class NFA {
 	 * @return true if the NFA accepts the input string, false otherwise
 	 */
 	public boolean accepts(String s) {
-		Stack<Integer> stack = new Stack<>();
-		stack.addAll(I);
-		Set<Integer> marked = epsilonDfs(stack);
-//		System.out.println(marked);
-		for(int i = 0; i < s.length(); i++) {
-			int c = s.charAt(i);			//accept a character
-			for(int q : marked)
-				for(Transition t : transitionsFrom(q))
-					if(t.symbol() == c)
-						stack.add(t.to());
-			marked = epsilonDfs(stack);
-//			System.out.println(marked);
-		}
-		for(int q : marked)
-			if(F.contains(q))
-				return true;
-		return false;
+		return snapshot().accepts(s);
 	}
 	
 	/**
-	 * Given a stack of source nodes, marks all nodes reachable via an epsilon transition.
-	 * @param stack source nodes
-	 * @return a set of marked nodes
+	 * Builds an immutable CSR snapshot of the automaton in O(n + m) time
+	 * Later changes to the automaton are not reflected in the snapshot
 	 */
-	private Set<Integer> epsilonDfs(Stack<Integer> stack) {
-		Set<Integer> marked = new HashSet<>();
-		
-		for(int i : stack)
-			marked.add(i);
-		
-		while(!stack.isEmpty()) {
-			int q = stack.pop();
-			for(Transition t : transitionsFrom(q))
-				if(!marked.contains(t.to())) {
-					if(t.symbol() == EPSILON) {
-						stack.add(t.to());
-						marked.add(t.to());
-					}
-				}
-		}
-		return marked;
+	public CompactNFA snapshot() {
+		return new CompactNFA(this);
 	}
 	
 	/**
@@ -275,11 +300,39 @@ public class NFA {
 	public void reverse() {
 		reversed = !reversed;
 		
-		Set<Integer> tmp = I;
+		IntSet tmp = I;
 		I = F;
 		F = tmp;
 		
 		G.transpose();
+		fireStatesChanged();
+	}
+	
+	/**
+	 * Rebuilds the duplicate-check index after the states were renumbered
+	 */
+	private void rebuildIndex() {
+		present = new TransitionSet(size());
+		G.forEachEdge(t -> indexAdd(t));
+	}
+	
+	//the index keys each transition by its endpoints before any reversal, so that reverse()
+	//leaves it valid; these take the endpoints as the automaton currently reads them
+	
+	private boolean indexContains(int u, int v, int symbolIndex) {
+		return reversed ? present.contains(v, u, symbolIndex) : present.contains(u, v, symbolIndex);
+	}
+	
+	private boolean indexAdd(Transition t) {
+		int u = t.from(), v = t.to();
+		return reversed ? present.add(v, u, t.symbolIndex(), t) : present.add(u, v, t.symbolIndex(), t);
+	}
+	
+	/**
+	 * @return the transition object removed from the index, null if there was none
+	 */
+	private Transition indexRemove(int u, int v, int symbolIndex) {
+		return reversed ? present.remove(v, u, symbolIndex) : present.remove(u, v, symbolIndex);
 	}
 	
 	/**
@@ -287,16 +340,110 @@ public class NFA {
 	 */
 	public Transition addTransition(int u, int v, char symbol) {
 		int i = alphabet.indexOf(symbol);
-		if(i == -1 && symbol != EPSILON)
+		if(i == -1)
 				throw new NFAException("Symbol (" + symbol  + ") not part of the alphabet.");
-		Transition uv = new Transition(u, v, symbol);
-		checkAddTransition(uv, i);
+		return addTransition(u, v, i);
+	}
+	
+	/**
+	 * Adds a transition on the symbol with the given index (see Alphabet)
+	 */
+	public Transition addTransition(int u, int v, int symbolIndex) {
+		if(symbolIndex < 0 || symbolIndex >= alphabet.numIndices())
+			throw new NFAException("Symbol index (" + symbolIndex + ") not part of the alphabet.");
+		Transition uv = new Transition(u, v, alphabet.symbol(symbolIndex), symbolIndex);
+		checkAddTransition(uv, symbolIndex);
 		//prevent duplicates
-		if(!transitionsFrom(uv.from()).contains(uv))
+		if(!indexContains(u, v, symbolIndex)) {
 			G.addEdge(uv);
+			indexAdd(uv);
+			fireTransitionAdded(u, v, symbolIndex);
+		}
 		return uv;
 	}
 	
+	/**
+	 * Removes the transition from u to v on the symbol with the given index
+	 * @return true if the NFA had the transition
+	 */
+	public boolean removeTransition(int u, int v, int symbolIndex) {
+		if(symbolIndex < 0 || symbolIndex >= alphabet.numIndices())
+			throw new NFAException("Symbol index (" + symbolIndex + ") not part of the alphabet.");
+		Transition t = indexRemove(u, v, symbolIndex);
+		if(t == null)
+			return false;
+		//remove the transition object itself, which the graph finds by its slot
+		G.removeEdge(t);
+		fireTransitionRemoved(u, v, symbolIndex);
+		return true;
+	}
+	
+	/**
+	 * Removes a transition object of the graph and tells the listeners
+	 */
+	private void remove(Transition t) {
+		int u = t.from(), v = t.to(), symbolIndex = t.symbolIndex();
+		indexRemove(u, v, symbolIndex);
+		G.removeEdge(t);
+		fireTransitionRemoved(u, v, symbolIndex);
+	}
+	
+	/**
+	 * Adds transitions from[i] -> to[i] on symbol index sym[i] for every i
+	 * The batch is deduplicated by sorting the transitions of each state, so duplicates within
+	 * the batch are dropped without hashing; transitions already in the NFA are skipped.
+	 * @return the number of transitions added
+	 */
+	public int addTransitions(int[] from, int[] to, int[] sym) {
+		int m = from.length;
+		int n = numStates();
+		if(to.length != m || sym.length != m)
+			throw new NFAException("Transition arrays must have the same length");
+		//counting sort on the source state
+		int[] start = new int[n + 1];
+		for(int i = 0; i < m; i++) {
+			if(from[i] < 0 || from[i] >= n)
+				throw new NFAException(from[i] + " is not a state");
+			if(to[i] < 0 || to[i] >= n)
+				throw new NFAException(to[i] + " is not a state");
+			if(sym[i] < 0 || sym[i] >= alphabet.numIndices())
+				throw new NFAException("Symbol index (" + sym[i] + ") not part of the alphabet.");
+			start[from[i] + 1]++;
+		}
+		for(int p = 0; p < n; p++)
+			start[p + 1] += start[p];
+		int[] next = Arrays.copyOf(start, n);
+		long[] keys = new long[m];		//symbol << 32 | target
+		for(int i = 0; i < m; i++)
+			keys[next[from[i]]++] = ((long)sym[i] << 32) | to[i];
+		
+		int added = 0;
+		for(int p = 0; p < n; p++) {
+			Arrays.sort(keys, start[p], start[p + 1]);
+			for(int k = start[p]; k < start[p + 1]; k++) {
+				if(k > start[p] && keys[k] == keys[k - 1])
+					continue;
+				int c = (int)(keys[k] >>> 32);
+				int q = (int)keys[k];
+				Transition uv = new Transition(p, q, alphabet.symbol(c), c);
+				checkAddTransition(uv, c);
+				if(indexAdd(uv)) {
+					G.addEdge(uv);
+					added++;
+					fireTransitionAdded(p, q, c);
+				}
+			}
+		}
+		return added;
+	}
+	
+	/**
+	 * Checks if the NFA has a transition from u to v on the symbol with the given index
+	 */
+	public boolean hasTransition(int u, int v, int symbolIndex) {
+		return indexContains(u, v, symbolIndex);
+	}
+	
 	protected void checkAddTransition(Transition t, int i) { }
 	
 	/**
@@ -304,6 +451,13 @@ public class NFA {
 	 * @return the alphabet
 	 */
 	public String alphabet() {
+		return alphabet.toString();
+	}
+	
+	/**
+	 * Gets the alphabet with its mapping from symbols to indices
+	 */
+	public Alphabet symbols() {
 		return alphabet;
 	}
 	
@@ -339,14 +493,14 @@ public class NFA {
 	/**
 	 * Returns the set of initial states
 	 */
-	public Set<Integer> initialStates() {
+	public IntSet initialStates() {
 		return I;
 	}
 	
 	/**
 	 * Returns the set of final states
 	 */
-	public Set<Integer> finalStates() {
+	public IntSet finalStates() {
 		return F;
 	}
 	
@@ -355,9 +509,66 @@ public class NFA {
 	 * @param v
 	 */
 	public void clearVertex(int v) {
+		if(!listeners.isEmpty() && !merging) {
+			//one transition at a time, so that listeners see the automaton after each removal
+			while(G.outdegree(v) > 0)
+				remove(G.edgesFrom(v).iterator().next());
+			while(G.indegree(v) > 0)
+				remove(G.edgesTo(v).iterator().next());
+			return;
+		}
+		for(Transition t : G.edgesFrom(v))
+			indexRemove(t.from(), t.to(), t.symbolIndex());
+		for(Transition t : G.edgesTo(v))
+			indexRemove(t.from(), t.to(), t.symbolIndex());
 		G.clearVertex(v);
 	}
 	
+	/**
+	 * Replaces the states and transitions of this automaton with those of another, which
+	 * must not be used afterwards; listeners and the reversed flag are kept
+	 */
+	void assign(NFA other) {
+		G = other.G;
+		alphabet = other.alphabet;
+		I = other.I;
+		F = other.F;
+		present = other.present;
+		if(reversed != other.reversed)
+			rebuildIndex();
+		fireStatesChanged();
+	}
+	
+	/**
+	 * Registers a listener to be told about every later change to the automaton
+	 * Changes made directly to the sets returned by initialStates() and finalStates() are not
+	 * reported.
+	 */
+	public void addListener(TransitionListener l) {
+		listeners.add(l);
+	}
+	
+	public void removeListener(TransitionListener l) {
+		listeners.remove(l);
+	}
+	
+	private void fireTransitionAdded(int u, int v, int symbolIndex) {
+		if(!merging)
+			for(TransitionListener l : listeners)
+				l.transitionAdded(u, v, symbolIndex);
+	}
+	
+	private void fireTransitionRemoved(int u, int v, int symbolIndex) {
+		if(!merging)
+			for(TransitionListener l : listeners)
+				l.transitionRemoved(u, v, symbolIndex);
+	}
+	
+	private void fireStatesChanged() {
+		for(TransitionListener l : listeners)
+			l.statesChanged();
+	}
+	
 	/**
 	 * @return a set of all transitions in the graph
 	 */
@@ -365,6 +576,15 @@ public class NFA {
 		return G.edges();
 	}
 	
+	/**
+	 * Visits every transition in place as (from, to, symbol index), without copying
+	 * the transition list
+	 * @param action called once per transition
+	 */
+	public void forEachTransition(IntIntIntConsumer action) {
+		G.forEachEdge(t -> action.accept(t.from(), t.to(), t.symbolIndex()));
+	}
+	
 	/**
 	 * Returns p : for all a in A, d(p, a)
 	 * @param p the state number
@@ -401,27 +621,39 @@ public class NFA {
 	
 	/**
 	 * Merges two left-equivalent states v and w
+	 * Listeners are told once through statesChanged, not about each transition moved.
 	 */
 	public void mergeLeft(int v, int w) {
 		Set<Transition> set = new HashSet<>();
 		for(Transition t : transitionsFrom(w))
 			set.add(t);
-		for(Transition t : set)
-			addTransition(v, t.to(), t.symbol());
-		clearVertex(w);
+		merging = true;
+		try {
+			for(Transition t : set)
+				addTransition(v, t.to(), t.symbolIndex());
+			clearVertex(w);
+		} finally {
+			merging = false;
+		}
 		checkMerge(v, w);
 	}
 	
 	/**
 	 * Merges two right-equivalent states v and w
+	 * Listeners are told once through statesChanged, not about each transition moved.
 	 */
 	public void mergeRight(int v, int w) {
 		Set<Transition> set = new HashSet<>();
 		for(Transition t : transitionsTo(w))
 			set.add(t);
-		for(Transition t : set)
-			addTransition(t.from(), v, t.symbol());
-		clearVertex(w);
+		merging = true;
+		try {
+			for(Transition t : set)
+				addTransition(t.from(), v, t.symbolIndex());
+			clearVertex(w);
+		} finally {
+			merging = false;
+		}
 		checkMerge(v, w);
 	}
 	
@@ -431,99 +663,125 @@ public class NFA {
 	 * @param w
 	 */
 	private void checkMerge(int v, int w) {
-		if(F.contains(w)) {
-			F.remove(w);
+		if(F.remove(w))
 			F.add(v);
-		}
-		if(I.contains(w)) {
-			I.remove(w);
+		if(I.remove(w))
 			I.add(v);
-		}
+		fireStatesChanged();
 	}
 	
 	/**
 	 * Removes vertices with degree 0, and renumbers vertices accordingly
+	 * A state with degree 0 that is both initial and final is kept, since it accepts the empty string.
 	 */
 	public int[] relabel() {
-		int[] map = G.relabel();
-		Set<Integer> Fnew = new HashSet<>();
-		for(int v : F)
-			if(map[v] != -1)
-				Fnew.add(map[v]);
-		Set<Integer> Inew = new HashSet<>();
-		for(int v : I)
-			if(map[v] != -1)
-				Inew.add(map[v]);
-		F = Fnew;
-		I = Inew;
+		int[] map = G.relabel(q -> I.contains(q) && F.contains(q));
+		rebuildIndex();
+		F.relabel(map);
+		I.relabel(map);
+		fireStatesChanged();
 		return map;
 	}
 	
 	/**
-	 * Converts the NFA to a string
+	 * Converts the NFA to a string in the input format (see NFA(Reader))
 	 */
 	public String toString() {
-		StringBuilder sb = new StringBuilder();
-		sb.append(numStates());
-		sb.append('\n');
-		sb.append(alphabet());
-		sb.append('\n');
-		for(int q : initialStates())
-			sb.append(q + " ");
-		sb.append('\n');
-		for(int q : finalStates())
-			sb.append(q + " ");
-		sb.append('\n');
-		for(Transition t : transitions())
-			sb.append(String.format("%d %d %c\n", t.from(), t.to(), t.symbol()));
-		return sb.toString();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			writeTo(out);
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Writes the NFA to a stream in the input format, encoded in UTF-8
+	 * The stream is flushed but not closed.
+	 */
+	public void writeTo(OutputStream out) throws IOException {
+		writeTo(Channels.newChannel(out));
+		out.flush();
+	}
+	
+	/**
+	 * Writes the NFA to a channel in the input format, encoded in UTF-8
+	 * Output is buffered in a fixed-size buffer and written as it fills up.
+	 */
+	public void writeTo(WritableByteChannel out) throws IOException {
+		TextOutput o = new TextOutput(out);
+		o.print(numStates()).print('\n');
+		o.print(alphabet()).print('\n');
+		for(int q = I.next(0); q != -1; q = I.next(q + 1))
+			o.print(q).print(' ');
+		o.print('\n');
+		for(int q = F.next(0); q != -1; q = F.next(q + 1))
+			o.print(q).print(' ');
+		o.print('\n');
+		for(int p = 0; p < numStates(); p++)
+			for(Transition t : G.edgesFrom(p))
+				o.print(p).print(' ').print(t.to()).print(' ').print(t.symbol()).print('\n');
+		o.flush();
 	}
 	
 	/**
 	 * Returns NFA in .dot format
 	 */
 	public String toDot() {
-		StringBuilder s = new StringBuilder();
-		s.append("digraph {\n");
-		s.append("\tnode [shape=point, color=white, fontcolor=white]; start;\n");
-		s.append("\tnode [shape=circle, color=black, fontcolor=black];\n");
-		
-		//a roundabout way of collecting transitions...
-		HashMap<Tuple, ArrayList<Character>> map = new HashMap<>();
-		
-		for(Transition t : G.edges()) {
-			if(t.symbol() == EPSILON)
-				s.append(String.format("\t%d -> %d [color=red];\n", t.from(), t.to()));
-			else {
-				Tuple pair = new Tuple(t.from(), t.to());
-				if(!map.containsKey(pair))
-					map.put(pair, new ArrayList<Character>());
-				map.get(pair).add(t.symbol());
-			}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			writeDot(out);
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
 		}
+		return new String(out.toByteArray(), StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Writes the NFA to a stream in .dot format, encoded in UTF-8
+	 * Transitions between the same pair of states are drawn as one edge labelled with their
+	 * symbols in sorted order; epsilon transitions are drawn in red.
+	 * The stream is flushed but not closed.
+	 */
+	public void writeDot(OutputStream out) throws IOException {
+		TextOutput o = new TextOutput(Channels.newChannel(out));
+		o.print("digraph {\n");
+		o.print("\tnode [shape=point, color=white, fontcolor=white]; start;\n");
+		o.print("\tnode [shape=circle, color=black, fontcolor=black];\n");
 		
-		for(Entry<Tuple, ArrayList<Character>> e : map.entrySet()) {
-			Tuple pair = e.getKey();
-			Collections.sort(e.getValue());
-			String symbols = "" + e.getValue().remove(0);
-			for(char c : e.getValue()) {
-				symbols += c;
+		long[] keys = new long[16];		//to << 32 | symbol of the labelled transitions of a state
+		for(int p = 0; p < numStates(); p++) {
+			int k = 0;
+			for(Transition t : G.edgesFrom(p)) {
+				if(t.symbol() == EPSILON) {
+					o.print('\t').print(p).print(" -> ").print(t.to()).print(" [color=red];\n");
+				} else {
+					if(k == keys.length)
+						keys = Arrays.copyOf(keys, 2 * k);
+					keys[k++] = ((long)t.to() << 32) | t.symbol();
+				}
+			}
+			Arrays.sort(keys, 0, k);
+			for(int i = 0; i < k; ) {
+				int q = (int)(keys[i] >>> 32);
+				o.print('\t').print(p).print(" -> ").print(q).print(" [label=\"");
+				for(; i < k && (int)(keys[i] >>> 32) == q; i++)
+					o.print((char)keys[i]);
+				o.print("\"];\n");
 			}
-			s.append(String.format("\t%d -> %d [label=\"%s\"];\n", pair.p(), pair.q(), symbols));
 		}
 		
 		for(int i = 0; i < G.order(); i++) {
 			if(F.contains(i)) {
-				s.append(String.format("\t%d [shape=doublecircle];\n", i));
+				o.print('\t').print(i).print(" [shape=doublecircle];\n");
 			} else if(I.contains(i)) {
-				s.append(String.format("\tstart -> %d;\n", i));
+				o.print("\tstart -> ").print(i).print(";\n");
 			}
-			/*if(re != null && i < re.length) {
-				s.append(String.format("\t%d [label = \"%c\"];\n", i, re[i]));
-			}*/
 		}
-		s.append("}");
-		return s.toString();
+		o.print("}");
+		o.flush();
+		out.flush();
 	}
 	
 }
@@ -3,6 +3,8 @@ package nfa;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.logging.Logger;
 
 import utils.*;
@@ -11,44 +13,130 @@ import utils.*;
 
 /**
  * Implementation of an algorithm for calculating right-equivalence classes of an NFA
- * Takes an NFA as input, and calculates its right-equivalence, then left-equivalence by
- * reversing the automaton and applying the same algorithm
+ * Takes an NFA as input, and calculates its right-equivalence, and its left-equivalence by
+ * applying the same algorithm to the reverse automaton; the two are computed concurrently
+ * on read-only views of a snapshot unless Options.concurrent is false
  * @author duncan
  *
  */
 public class NFAEquivalence {
 
+	/**
+	 * Algorithms for computing the equivalences, which give the same classes
+	 * TABLE: fills a table of non-equivalent pairs, O(n^2) time and space
+	 * PARTITION_REFINEMENT: Paige-Tarjan partition refinement (see PartitionRefinement),
+	 * O(m log n) time and O(n + m) space
+	 */
+	public enum Method { TABLE, PARTITION_REFINEMENT }
+	
+	/**
+	 * The method used by constructors that do not specify one
+	 */
+	public static Method defaultMethod = Method.TABLE;
+	
+	private static final int CHUNK = 256;		//pairs handed between threads at a time
+	private static final int BATCH = 1 << 12;	//pairs taken at a time when the tables are off the heap
+	private static final int ROWS = 1 << 18;	//entries of the tables ordered by row at a time when they are off the heap
+	
 	private final Logger logger = Logger.getLogger(NFAEquivalence.class.getName());
 	boolean DEBUG = false;
 	
 	private NFA M;
 	private int nStates;			//number of states
-	private boolean[][] table;		//true if pairs are non-equivalent states
 	private DisjointSets L;			//left-equivalent states
 	private DisjointSets R;			//right-equivalent states
+	private int[] stateMap;			//new number of each state of the automaton given
 	public boolean relabel = true;
+	private final Method method;
+	private final int threads;
+	private final long heapBudget;
+	private final File scratchDir;
+	
+	/**
+	 * Settings for computing the equivalences
+	 */
+	public static class Options {
+		public Method method = defaultMethod;
+		public boolean concurrent = true;	//compute the left and right equivalences on separate threads
+		public int threads = 1;				//threads applying rule 3 in each direction of the table method
+		public long heapBudget = PairTables.defaultHeapBudget;	//bytes of heap for the tables before they move off the heap
+		public File scratchDir = PairTables.defaultScratchDir;	//directory of off-heap tables, null for direct buffers
+	}
 
 	/**
 	 * Computes the left and right equivalences of the given automaton as union-find structures
 	 * @param automaton
 	 */
 	public NFAEquivalence(NFA automaton) {
+		this(automaton, new Options());
+	}
+	
+	/**
+	 * Computes the left and right equivalences of the given automaton with the given method
+	 * @param automaton
+	 * @param method
+	 */
+	public NFAEquivalence(NFA automaton, Method method) {
+		this(automaton, options(method));
+	}
+	
+	private static Options options(Method method) {
+		Options options = new Options();
+		options.method = method;
+		return options;
+	}
+	
+	/**
+	 * Computes the left and right equivalences of the given automaton with the given options
+	 * @param automaton
+	 * @param options
+	 */
+	public NFAEquivalence(NFA automaton, Options options) {
+		method = options.method;
+		threads = Math.max(1, options.threads);
+		heapBudget = options.heapBudget;
+		scratchDir = options.scratchDir;
 		M = automaton;
 		nStates = M.numStates();
 		
-		M.trim();
-		if(relabel)
-			M.relabel();
+		stateMap = M.trim();
+		if(relabel) {
+			int[] map = M.relabel();
+			for(int q = 0; q < stateMap.length; q++)
+				if(stateMap[q] != -1)
+					stateMap[q] = map[stateMap[q]];
+		}
 		nStates = M.numStates();
 		
-		//compute right-equivalence
-		if(DEBUG) System.out.println("Computing =R");
-		R = computeEquivalence();
-		M.reverse();
-		//compute left-equivalence
-		if(DEBUG) System.out.println("Computing =L");
-		L = computeEquivalence();
-		M.reverse();
+		//right-equivalence on the snapshot, left-equivalence on its reverse view
+		CompactNFA C = M.snapshot();
+		Worker right = new Worker(C);
+		Worker left = new Worker(C.reverse());
+		if(options.concurrent && nStates > 1) {
+			CompletableFuture<DisjointSets> r = CompletableFuture.supplyAsync(right::compute);
+			L = left.compute();
+			R = join(r);
+		} else {
+			if(DEBUG) System.out.println("Computing =R");
+			R = right.compute();
+			if(DEBUG) System.out.println("Computing =L");
+			L = left.compute();
+		}
+	}
+	
+	/**
+	 * Waits for a task, rethrowing its runtime exceptions and errors as they were thrown
+	 */
+	private static <T> T join(CompletableFuture<T> f) {
+		try {
+			return f.join();
+		} catch(CompletionException e) {
+			if(e.getCause() instanceof RuntimeException)
+				throw (RuntimeException)e.getCause();
+			if(e.getCause() instanceof Error)
+				throw (Error)e.getCause();
+			throw e;
+		}
 	}
 	
 	/**
@@ -56,6 +144,12 @@ public class NFAEquivalence {
 	 */
 	public NFA getNFA() { return M; }
 	
+	/**
+	 * Returns the state of the trimmed automaton each state of the given one became, -1 if
+	 * it was removed
+	 */
+	public int[] getStateMap() { return stateMap; }
+	
 	/**
 	 * Returns left union-find structure
 	 */
@@ -66,33 +160,6 @@ public class NFAEquivalence {
 	 */
 	public DisjointSets getRight() { return R; }
 	
-	/**
-	 * Computes sets of right-equivalent states and returns the union-find structure
-	 * @return the UnionFind structure representing the states
-	 */
-	public DisjointSets computeEquivalence() {
-		computePairs();
-		
-		if(DEBUG) {
-			System.out.println("Equivalence table: ");
-			for(int i = 0; i < nStates; i++) {
-				for(int j = 0; j < nStates; j++)
-					System.out.print((table[i][j] ? "1" : "0") + " ");
-				System.out.println();
-			}
-		}
-		
-		DisjointSets uf = new DisjointSets(nStates);
-		for(int i = 0; i < nStates; i++)
-			for(int j = i + 1; j < nStates; j++)
-				if(areEquivalent(i, j)) {
-					if(DEBUG)
-						System.out.println(String.format("Joining %d and %d", i, j));
-					uf.union(i, j);
-				}
-		return uf;
-	}
-	
 	/**
 	 * Performs a depth-first search from the initial states and marks visited nodes
 	 * @param marked
@@ -101,7 +168,7 @@ public class NFAEquivalence {
 		boolean[] marked = new boolean[nStates];
 		//DFS on initial states
 		Stack<Integer> stack = new Stack<Integer>();
-		for(int q : M.initialStates())
+		for(int q = M.initialStates().next(0); q != -1; q = M.initialStates().next(q + 1))
 			stack.push(q);
 		while(!stack.isEmpty()) {
 			int p = stack.pop();
@@ -119,121 +186,338 @@ public class NFAEquivalence {
 	}
 	
 	/**
-	 * Computes all pairs of states that are not equivalent by the following rules:
-	 * 1. final states are not equivalent to any other state
-	 * 2. for all i, j, if d(i) != d(j) then i ~ j where d(i) = {a in A | d(i) is defined}
-	 * 3. for all i, j, if there exists d(i, c) = i' where for all d(j, c) = j', i' ~ j' then i ~ j
+	 * Computes the right-equivalence of one direction of the automaton
+	 * Workers only read their snapshot and keep the table in their own fields, so the forward
+	 * and reverse directions can be computed on separate threads.
 	 */
-	private void computePairs() {
-		table = new boolean[nStates][nStates];
+	private class Worker {
 		
-		//build the lookup table for whether a state has a transition
-		boolean[][] lookup = new boolean[M.numStates()][M.alphabet().length() + 1];
-		for(Transition t : M.transitions()) {
-			if(t.symbol() != NFA.EPSILON) {
-				int i = M.alphabet().indexOf(t.symbol());
-				lookup[t.from()][i + 1] = true;
-			} else {
-				lookup[t.from()][0] = true;
-			}
+		private final CompactNFA C;		//snapshot of the automaton the table is computed on
+		private final int nStates;		//number of states
+		private int[] bucket;			//bucket of each state, states in different buckets are non-equivalent
+		private int[] rank;				//position of each state in its bucket
+		private int[] bucketStart;		//states of bucket b are bucketStates[bucketStart[b]] ... bucketStates[bucketStart[b + 1] - 1]
+		private int[] bucketStates;
+		private PairTable[] table;		//true if pairs in the same bucket are non-equivalent states
+		
+		Worker(CompactNFA c) {
+			C = c;
+			nStates = c.numStates();
 		}
 		
-		if(DEBUG) {
-			System.out.println("Lookup table: ");
-			for(int i = 0; i < lookup.length; i++) {
-				for(int j = 0; j < lookup[i].length; j++)
-					System.out.print((lookup[i][j] ? "1" : "0") + " ");
-				System.out.println();
+		/**
+		 * Computes sets of right-equivalent states and returns the union-find structure
+		 * @return the UnionFind structure representing the states
+		 */
+		DisjointSets compute() {
+			if(method == Method.PARTITION_REFINEMENT)
+				return new PartitionRefinement(C).compute();
+			computePairs();
+		
+			if(DEBUG) {
+				System.out.println("Equivalence table: ");
+				for(int i = 0; i < nStates; i++) {
+					for(int j = 0; j < nStates; j++)
+						System.out.print((areEquivalent(i, j) ? "0" : "1") + " ");
+					System.out.println();
+				}
 			}
+		
+			//only states in the same bucket can be equivalent
+			DisjointSets uf = new DisjointSets(nStates);
+			for(int b = 0; b + 1 < bucketStart.length; b++)
+				for(int x = bucketStart[b]; x < bucketStart[b + 1]; x++)
+					for(int y = x + 1; y < bucketStart[b + 1]; y++) {
+						int i = bucketStates[x];
+						int j = bucketStates[y];
+						if(areEquivalent(i, j)) {
+							if(DEBUG)
+								System.out.println(String.format("Joining %d and %d", i, j));
+							uf.union(i, j);
+						}
+					}
+			return uf;
 		}
 		
-		if(DEBUG) System.out.println("Applying rule 1");
-		//rule 1
-		for(int s : M.finalStates())
-			for(int i = 0; i < nStates; i++)
-				if(s != i && !M.finalStates().contains(i)) {
-					if(DEBUG)
-						System.out.println(String.format("{%d, %d}", s, i));
-					table[i][s] = true;
-					table[s][i] = true;
+		/**
+		 * Computes all pairs of states that are not equivalent by the following rules:
+		 * 1. final states are not equivalent to any other state
+		 * 2. for all i, j, if d(i) != d(j) then i ~ j where d(i) = {a in A | d(i) is defined}
+		 * 3. for all i, j, if there exists d(i, c) = i' where for all d(j, c) = j', i' ~ j' then i ~ j
+		 * Rules 1 and 2 are applied by putting states in buckets by their signature (final or not,
+		 * and d(i)); pairs in different buckets are never stored, and rule 3 is seeded by checking
+		 * the pairs within each bucket.
+		 */
+		private void computePairs() {
+			if(DEBUG) System.out.println("Applying rules 1 and 2");
+			computeBuckets();
+			//the tables of both directions share the heap budget
+			PairTables tables = new PairTables(heapBudget / 2, scratchDir, threads > 1);
+			table = new PairTable[bucketStart.length - 1];
+			for(int b = 0; b < table.length; b++)
+				table[b] = tables.create(bucketStart[b + 1] - bucketStart[b]);
+		
+			if(DEBUG) System.out.println("Applying rule 3");
+			//rule 3
+			//seed with the pairs in a bucket whose successors on some symbol lie in different buckets
+			int[] sig = successorSignatures();
+			PairQueue Q = new PairQueue(nStates);
+			if(tables.offHeap()) {
+				seed(Q, sig);
+				propagate(Q, true);
+				return;
+			}
+			for(int b = 0; b < table.length; b++)
+				for(int x = bucketStart[b]; x < bucketStart[b + 1]; x++)
+					for(int y = x + 1; y < bucketStart[b + 1]; y++) {
+						int p = bucketStates[x];
+						int q = bucketStates[y];
+						if(sig[p] != sig[q]) {
+							table[b].set(rank[p], rank[q]);
+							Q.add(p, q);
+						}
+					}
+			//apply rule3 on new non-equivalent pairs
+			if(threads > 1) {
+				propagate(Q, false);
+			} else {
+				while(!Q.isEmpty()) {
+					long pair = Q.poll();
+					rule3(Q, PairQueue.first(pair), PairQueue.second(pair));
+					rule3(Q, PairQueue.second(pair), PairQueue.first(pair));
 				}
-
-		if(DEBUG) System.out.println("Applying rule 2");
-		//rule 2
-		for(int i = 0; i < nStates; i++) {
-			for(int j = i + 1; j < nStates; j++)
-				if(areEquivalent(i, j)) {
-					for(int k = 0; k <= M.alphabet().length(); k++)
-						if(lookup[i][k] != lookup[j][k]) {
-							
-							if(DEBUG)
-								System.out.println(String.format("{%d, %d}", i, j));
-							
-							table[i][j] = true;
-							table[j][i] = true;
-							break;
+			}
+		}
+		
+		/**
+		 * Marks the seeded pairs row by row and applies rule 3 on them, for off-heap tables
+		 * The seeded pairs are never queued all at once: each one is marked as it is found and
+		 * the pairs of its predecessors are marked in batches ordered by row (see rule3), so the
+		 * queue only gets the pairs marked by rule 3.
+		 */
+		private void seed(PairQueue Q, int[] sig) {
+			RowBatch batch = new RowBatch();
+			for(int b = 0; b < table.length; b++)
+				for(int x = bucketStart[b]; x < bucketStart[b + 1]; x++)
+					for(int y = bucketStart[b]; y < x; y++) {
+						int p = bucketStates[x];
+						int q = bucketStates[y];
+						if(sig[p] != sig[q] && table[b].set(rank[p], rank[q])) {
+							predecessors(p, q, (r, s, c) -> add(batch, p, r, s, c));
+							predecessors(q, p, (r, s, c) -> add(batch, q, r, s, c));
+							if(batch.size() >= ROWS)
+								flush(Q, batch);
 						}
+					}
+			flush(Q, batch);
+		}
+		
+		/**
+		 * Applies rule 3 on the seeded pairs with one or more threads (see PairWorklist)
+		 * A pair is queued only by the thread whose compare-and-set marked it, and marks are
+		 * never cleared, so the threads reach the same fixpoint as the sequential loop.
+		 * @param ordered if true, the pairs are taken in batches whose entries are visited by row
+		 */
+		private void propagate(PairQueue seeds, boolean ordered) {
+			if(ordered) {
+				PairWorklist.run(seeds, threads, CHUNK, BATCH, this::rule3);
+				return;
+			}
+			PairWorklist.run(seeds, threads, CHUNK, CHUNK, (Q, pairs, count) -> {
+				for(int i = 0; i < count; i++) {
+					rule3(Q, PairQueue.first(pairs[i]), PairQueue.second(pairs[i]));
+					rule3(Q, PairQueue.second(pairs[i]), PairQueue.first(pairs[i]));
 				}
+			});
 		}
 		
+		/**
+		 * Puts the states in buckets by final-ness and by their set of defined symbols
+		 * The signature is refined one symbol at a time in O(nk) time, without comparing pairs.
+		 */
+		private void computeBuckets() {
+			int k = C.numSymbols();
+			bucket = new int[nStates];
+			for(int p = 0; p < nStates; p++)
+				bucket[p] = C.isFinal(p) ? 1 : 0;
+			int count = 2;
 		
-		if(DEBUG) System.out.println("Applying rule 3");
-		//rule 3
-		Queue<Tuple> Q = new ArrayDeque<Tuple>(nStates);
-		for(int i = 0; i < nStates; i++) {
-			for(int j = i + 1; j < nStates; j++)
-				if(!areEquivalent(i, j)) {
-					rule3(Q, i, j);
-					rule3(Q, j, i);
+			boolean[] defined = new boolean[nStates * k];
+			for(int p = 0; p < nStates; p++)
+				for(int i = C.outBegin(p); i < C.outEnd(p); i++)
+					defined[p * k + C.outSymbol(i)] = true;
+			int[] split = new int[2 * Math.max(nStates, count)];
+			for(int c = 0; c < k; c++) {
+				Arrays.fill(split, 0, 2 * count, -1);
+				int next = 0;
+				for(int p = 0; p < nStates; p++) {
+					int key = 2 * bucket[p] + (defined[p * k + c] ? 1 : 0);
+					if(split[key] == -1)
+						split[key] = next++;
+					bucket[p] = split[key];
 				}
+				count = next;
+			}
+		
+			//list the states of each bucket in increasing order
+			bucketStart = new int[count + 1];
+			for(int p = 0; p < nStates; p++)
+				bucketStart[bucket[p] + 1]++;
+			for(int b = 0; b < count; b++)
+				bucketStart[b + 1] += bucketStart[b];
+			bucketStates = new int[nStates];
+			rank = new int[nStates];
+			int[] next = Arrays.copyOf(bucketStart, count);
+			for(int p = 0; p < nStates; p++) {
+				rank[p] = next[bucket[p]] - bucketStart[bucket[p]];
+				bucketStates[next[bucket[p]]++] = p;
+			}
 		}
-		//apply rule3 on new non-equivalent pairs
-		while(!Q.isEmpty()) {
-			Tuple pair = Q.poll();
-			rule3(Q, pair.p(), pair.q());
-			rule3(Q, pair.q(), pair.p());
+		
+		/**
+		 * Numbers the states by the set of pairs (c, bucket of d(p, c)) over their transitions
+		 * Two states in the same bucket with different numbers are non-equivalent by rule 3, since
+		 * one of them has a transition that the other cannot match within a bucket.
+		 */
+		private int[] successorSignatures() {
+			long[] keys = new long[C.size()];		//c << 32 | bucket of the target, sorted per state
+			int[] end = new int[nStates];
+			int k = 0;
+			for(int p = 0; p < nStates; p++) {
+				int begin = k;
+				for(int i = C.outBegin(p); i < C.outEnd(p); i++)
+					keys[k++] = ((long)C.outSymbol(i) << 32) | bucket[C.outTarget(i)];
+				Arrays.sort(keys, begin, k);
+				int distinct = begin;
+				for(int i = begin; i < k; i++)
+					if(i == begin || keys[i] != keys[i - 1])
+						keys[distinct++] = keys[i];
+				k = distinct;
+				end[p] = k;
+			}
+		
+			HashMap<LongRange, Integer> ids = new HashMap<>();
+			int[] sig = new int[nStates];
+			for(int p = 0; p < nStates; p++) {
+				LongRange key = new LongRange(keys, p == 0 ? 0 : end[p - 1], end[p]);
+				Integer id = ids.get(key);
+				if(id == null) {
+					id = ids.size();
+					ids.put(key, id);
+				}
+				sig[p] = id;
+			}
+			return sig;
 		}
-	}
-	
-	/**
-	 * Finds non-equivalent states given two non-equivalent states p0 and q0
-	 */
-	public void rule3(Queue<Tuple> Q, int p0, int q0) {
-		int p, q;	//states that transition to p0 & q0 respectively
-		for(Transition tp : M.transitionsTo(p0)) {
-			p = tp.from();
-			for(Transition tq : M.transitionsTo(q0)) {
-				q = tq.from();
-				if(!areEquivalent(p, q) || p == q || tp.symbol() != tq.symbol())
+		
+		/**
+		 * Finds non-equivalent states given two non-equivalent states p0 and q0
+		 */
+		void rule3(PairQueue Q, int p0, int q0) {
+			predecessors(p0, q0, (p, q, c) -> mark(Q, p0, p, q, c));
+		}
+		
+		/**
+		 * Applies rule 3 on a batch of non-equivalent pairs, in both orders
+		 * The pairs of predecessors are collected first, up to ROWS of them, and then checked
+		 * and marked in the order of their rows in the tables, so that off-heap tables are paged
+		 * in sequentially. The successors checked for each of them (see hasEquivalentSuccessor)
+		 * are still read in no particular order.
+		 */
+		private void rule3(PairQueue Q, long[] pairs, int count) {
+			RowBatch batch = new RowBatch();
+			for(int i = 0; i < count; i++) {
+				int p0 = PairQueue.first(pairs[i]), q0 = PairQueue.second(pairs[i]);
+				predecessors(p0, q0, (p, q, c) -> add(batch, p0, p, q, c));
+				predecessors(q0, p0, (p, q, c) -> add(batch, q0, p, q, c));
+				if(batch.size() >= ROWS || i == count - 1)
+					flush(Q, batch);
+			}
+		}
+		
+		/**
+		 * Checks and marks the pairs of a batch in the order of their rows
+		 */
+		private void flush(PairQueue Q, RowBatch batch) {
+			batch.sort();
+			for(int j = 0; j < batch.size(); j++) {
+				long pair = batch.first(j), reason = batch.second(j);
+				mark(Q, PairQueue.second(reason), PairQueue.first(pair), PairQueue.second(pair), PairQueue.first(reason));
+			}
+			batch.clear();
+		}
+		
+		/**
+		 * Adds the pair (p, q) that may be marked because of p0 on the symbol c to a batch,
+		 * in the row it has in the tables
+		 */
+		private void add(RowBatch batch, int p0, int p, int q, int c) {
+			if(p != q && bucket[p] == bucket[q])
+				batch.add(bucketStart[bucket[p]] + Math.max(rank[p], rank[q]), PairQueue.pack(p, q), PairQueue.pack(c, p0));
+		}
+		
+		/**
+		 * Marks p and q as non-equivalent, where p goes to p0 on the symbol c and q goes to a
+		 * state non-equivalent to p0, unless q also goes to a state equivalent to p0
+		 */
+		private void mark(PairQueue Q, int p0, int p, int q, int c) {
+			if(p == q || !areEquivalent(p, q))
+				return;
+			//q0 is not equivalent to p0, so the transition to q0 is never a match
+			if(hasEquivalentSuccessor(q, c, p0))
+				return;
+			if(DEBUG)
+				if(C.isFinal(p) == C.isFinal(q))
+					System.out.println(String.format("since %d != {%d, %d}", p0, p, q));
+			
+			if(table[bucket[p]].set(rank[p], rank[q]))
+				Q.add(p, q);
+		}
+		
+		/**
+		 * Visits the pairs (p, q, c) where p goes to p0 and q goes to q0 on the symbol c
+		 */
+		private void predecessors(int p0, int q0, IntIntIntConsumer visit) {
+			//the transitions into p0 and q0 are sorted by symbol, so join the runs with the same symbol
+			int ip = C.inBegin(p0), pEnd = C.inEnd(p0);
+			int iq = C.inBegin(q0), qEnd = C.inEnd(q0);
+			while(ip < pEnd && iq < qEnd) {
+				int c = C.inSymbol(ip);
+				if(C.inSymbol(iq) < c) {
+					iq++;
 					continue;
-				char c = tp.symbol();
-				boolean foundEquivalent = false;
-				for(Transition t : M.transitionsFrom(q)) {
-					if(t.symbol() == c && tq != t && areEquivalent(p0, t.to())) {
-						foundEquivalent = true;
-						break;
-					}
 				}
-				if(foundEquivalent) continue;
-				if(DEBUG)
-					if(M.finalStates().contains(p) && M.finalStates().contains(q) || 
-						!M.finalStates().contains(p) && !M.finalStates().contains(q))
-						System.out.println(String.format("since %d != %d {%d, %d}", p0, q0, p, q));
-
-//				System.out.format("%s has no equivalent in %s\n", tp, q);
-//				System.out.format("(%d, %d) eliminated by rule 3\n", p, q);
-				table[p][q] = true;
-				table[q][p] = true;
-				Q.add(new Tuple(p, q));
+				int pRun = ip;
+				while(pRun < pEnd && C.inSymbol(pRun) == c)
+					pRun++;
+				int qRun = iq;
+				while(qRun < qEnd && C.inSymbol(qRun) == c)
+					qRun++;
+				for(; ip < pRun; ip++)
+					for(int j = iq; j < qRun; j++)
+						visit.accept(C.inSource(ip), C.inSource(j), c);
+				iq = qRun;
 			}
 		}
+		
+		/**
+		 * Checks if q has a transition on the symbol with index c to a state equivalent to p
+		 */
+		private boolean hasEquivalentSuccessor(int q, int c, int p) {
+			for(int i = C.outBegin(q, c); i < C.outEnd(q, c); i++)
+				if(areEquivalent(p, C.outTarget(i)))
+					return true;
+			return false;
+		}
+		
+		/**
+		 * Checks if states u and v are equivalent
+		 */
+		private boolean areEquivalent(int u, int v) {
+			return bucket[u] == bucket[v] && !table[bucket[u]].get(rank[u], rank[v]);
+		}
 	}
 	
-	/**
-	 * Checks if states u and v are equivalent
-	 */
-	private boolean areEquivalent(int u, int v) { return !table[u][v]; }
-	
 	public static void main(String[] args) {
 		
 		if(args.length != 1) {
@@ -4,7 +4,10 @@ import graph.*;
 
 import java.io.*;
 import java.util.*;
+import java.util.logging.Logger;
 
+import nfa.io.BinaryNFA;
+import nfa.io.NFAParser;
 import utils.*;
 
 
@@ -15,6 +18,8 @@ import utils.*;
  */
 public class NFAReduction {
 	
+	private static final Logger logger = Logger.getLogger(NFAReduction.class.getName());
+	
 	/**
 	 * Reduces an NFA and relabels all merged states
 	 * @param m the NFA
@@ -31,7 +36,31 @@ public class NFAReduction {
 	 * @return
 	 */
 	public static void reduce(NFA m, boolean relabel) {
-		NFAEquivalence E = new NFAEquivalence(m);
+		ReductionOptions options = new ReductionOptions();
+		options.relabel = relabel;
+		m.assign(reduce(m, options).getNFA());
+	}
+	
+	/**
+	 * Reduces a copy of an NFA, leaving the input unchanged
+	 * The input is only read, through a snapshot, so several reductions can run on it at once.
+	 * Only the useful states of the input are copied.
+	 * @param input the NFA
+	 * @param options
+	 * @return the reduced automaton, the state map and the merged classes
+	 */
+	public static ReductionResult reduce(NFA input, ReductionOptions options) {
+		CompactNFA C = input.snapshot();
+		int numStates = C.numStates();
+		NFA m = usefulCopy(C, input.graphType());
+		int[] into = new int[numStates];		//state each state was merged into by the structural pass
+		for(int q = 0; q < numStates; q++)
+			into[q] = q;
+		if(options.structural) {
+			int removed = StructuralReduction.reduce(m, into);
+			logger.fine("Structural pre-pass removed " + removed + " states");
+		}
+		NFAEquivalence E = new NFAEquivalence(m, options.equivalence);
 		DisjointSets left = E.getLeft();
 		DisjointSets right = E.getRight();
 		
@@ -41,21 +70,21 @@ public class NFAReduction {
 		sets.add(0, null);			//1-index for matching
 		int nSets = sets.size();
 		
-		//build the bipartite graph
-		UndirectedGraph<Edge> bipartite = new UndirectedGraph<>(nSets);
-		for(int i = 0; i < m.numStates(); i++)
-			bipartite.addEdge(new Edge(left.find(i) + 1, n + right.find(i) + 1));
+		//build the bipartite graph of the classes, one edge per (left, right) pair of a state
+		int[] start = new int[n + 2];
+		int[] adj = classGraph(m.numStates(), left, right, n, start);
 		
 		//find the maximum matching & vertex cover
-		BipartiteMatching maxMatch = new BipartiteMatching(bipartite, n + 1);
-		boolean[] marked = findVertexCover(bipartite, maxMatch);
+		BipartiteMatching maxMatch = new BipartiteMatching(nSets, n + 1, start, adj);
+		boolean[] cover = maxMatch.minimumVertexCover();
 		
 		//merge the sets together and remove duplicates
 		boolean[] inMinSet = new boolean[m.numStates()];
+		int[] chosen = new int[m.numStates()];		//merged set of each state, 0 if none
+		Quotient quotient = new Quotient(m.snapshot());
 		
-//		System.out.println("Merged states: ");
 		for(int i = 1; i < nSets; i++)
-			if(!marked[i] && i <= n || marked[i] && i > n) {
+			if(cover[i]) {
 				Set<Integer> set = sets.get(i);
 				Iterator<Integer> it = set.iterator();
 				while(it.hasNext()) {	//remove duplicates
@@ -67,76 +96,122 @@ public class NFAReduction {
 				}
 				if(set.size() > 1) {
 					if(i <= n)
-						mergeLeft(m, sets.get(i));
+						quotient.mergeLeft(set);
 					else
-						mergeRight(m, sets.get(i));
-//					System.out.println(set);
+						quotient.mergeRight(set);
+					for(int q : set)
+						chosen[q] = i;
 				}
 			}
-		if(relabel)
-			m.relabel();
+		NFA reduced = quotient.build(input.graphType(), options.relabel);
+		
+		//follow each state of the input through the structural pass, the trimming and the merges
+		int[] trimmed = E.getStateMap();
+		int[] merged = quotient.stateMap();
+		int[] stateMap = new int[numStates];
+		List<Set<Integer>> leftClasses = new ArrayList<>();
+		List<Set<Integer>> rightClasses = new ArrayList<>();
+		Map<Integer, Set<Integer>> classes = new HashMap<>();
+		for(int q = 0; q < numStates; q++) {
+			int p = q;
+			while(into[p] != p)
+				p = into[p];
+			p = trimmed[p];
+			stateMap[q] = p == -1 ? -1 : merged[p];
+			if(p != -1 && chosen[p] != 0)
+				classes.computeIfAbsent(chosen[p], i -> {
+					Set<Integer> set = new LinkedHashSet<>();
+					(i <= n ? leftClasses : rightClasses).add(set);
+					return set;
+				}).add(q);
+		}
+		return new ReductionResult(reduced, stateMap, leftClasses, rightClasses);
 	}
 	
 	/**
-	 * Given a bipartite graph and a maximum matching, finds the vertex cover
-	 * @param bipartite
-	 * @param maxMatch
-	 * @return a boolean array marked where the vertex cover is v s.t. !marked[v] and v <= n
-	 * or marked[v] and v > n
+	 * Copies the useful states of a snapshot, keeping their numbers
+	 * States that are unreachable or cannot reach a final state are left without transitions.
 	 */
-	private static boolean[] findVertexCover(UndirectedGraph<Edge> bipartite,
-			BipartiteMatching maxMatch) {
-		int nSets = bipartite.order();
-		Set<Edge> matching = maxMatch.getMatching();
-		//create the residual graph
-		Stack<Integer> stack = new Stack<Integer>();
-		DirectedGraph<Edge> residual = new DirectedGraph<Edge>(nSets);
-		for(Edge uv : bipartite.edges()) {
-			int u = uv.from();
-			int v = uv.to();
-			if(matching.contains(uv))
-				residual.addEdge(new Edge(v, u));
-			else
-				residual.addEdge(uv);
-			if(!maxMatch.isMatched(u))
-				stack.add(u);
+	private static NFA usefulCopy(CompactNFA C, NFA.GraphType type) {
+		int n = C.numStates();
+		boolean[] useful = C.usefulStates();
+		IntSet I = new IntSet(n);
+		IntSet F = new IntSet(n);
+		int m = 0;
+		for(int p = 0; p < n; p++) {
+			if(C.isInitial(p))
+				I.add(p);
+			if(C.isFinal(p))
+				F.add(p);
+			if(useful[p])
+				for(int i = C.outBegin(p); i < C.outEnd(p); i++)
+					if(useful[C.outTarget(i)])
+						m++;
 		}
-		//dfs on free vertices
-		boolean[] marked = new boolean[nSets];
-		while(!stack.isEmpty()) {
-			int q = stack.pop();
-			marked[q] = true;
-			for(Edge uv : residual.edgesOf(q)) {
-				if(!marked[uv.to()])
-					stack.push(uv.to());
-			}
-		}
-		return marked;
+		int[] from = new int[m];
+		int[] to = new int[m];
+		int[] sym = new int[m];
+		int j = 0;
+		for(int p = 0; p < n; p++)
+			if(useful[p])
+				for(int i = C.outBegin(p); i < C.outEnd(p); i++)
+					if(useful[C.outTarget(i)]) {
+						from[j] = p;
+						to[j] = C.outTarget(i);
+						sym[j] = C.outSymbol(i);
+						j++;
+					}
+		NFA copy = new NFA(n, C.alphabet().toString(), I, F, type);
+		copy.addTransitions(from, to, sym);
+		return copy;
 	}
 	
 	/**
-	 * Given a collection of right-equivalent states, merges them together
+	 * Builds the bipartite graph of the classes in CSR form, without duplicate edges
+	 * Left class c is vertex c + 1 and right class c is vertex n + c + 1. States in the same
+	 * left and right class give a single edge, so there are at most min(states, classes^2) edges.
+	 * @param start filled with the row offsets: the neighbours of left vertex u are
+	 * adj[start[u]] ... adj[start[u + 1] - 1]
+	 * @return adj
 	 */
-	public static void mergeRight(NFA M, Collection<Integer> q) {
-		int v = -1;
-		for(int w : q) {
-			if(v == -1)
-				v = w;
-			else
-				M.mergeRight(v, w);
+	private static int[] classGraph(int numStates, DisjointSets left, DisjointSets right, int n, int[] start) {
+		//counting sort of the states by left class
+		for(int q = 0; q < numStates; q++)
+			start[left.find(q) + 2]++;
+		for(int u = 1; u <= n; u++)
+			start[u + 1] += start[u];
+		int[] adj = new int[numStates];
+		int[] next = Arrays.copyOf(start, n + 1);
+		for(int q = 0; q < numStates; q++)
+			adj[next[left.find(q) + 1]++] = n + right.find(q) + 1;
+		
+		//remove duplicates within each row, compacting the rows in place
+		int[] seen = new int[n + right.count() + 1];		//last row each right vertex was seen in
+		int k = 0;
+		for(int u = 1; u <= n; u++) {
+			int begin = start[u];
+			start[u] = k;
+			for(int i = begin; i < start[u + 1]; i++)
+				if(seen[adj[i]] != u) {
+					seen[adj[i]] = u;
+					adj[k++] = adj[i];
+				}
 		}
+		start[n + 1] = k;
+		return Arrays.copyOf(adj, k);
 	}
 	
 	/**
-	 * Given a collection of left-equivalent states, merges them together
+	 * Given a collection of right-equivalent states, merges them together
+	 * reduce merges its classes with a Quotient instead; this merges in place through NFA.mergeRight.
 	 */
-	private static void mergeLeft(NFA M, Collection<Integer> q) {
+	public static void mergeRight(NFA M, Collection<Integer> q) {
 		int v = -1;
 		for(int w : q) {
 			if(v == -1)
 				v = w;
 			else
-				M.mergeLeft(v, w);
+				M.mergeRight(v, w);
 		}
 	}
 	
@@ -148,16 +223,15 @@ public class NFAReduction {
 	
 	public static void main(String[] args) {
 		try {
-			Reader in;
+			NFAParser parser = new NFAParser();
+			NFA M;
 			if(args.length == 0)
-				in = new InputStreamReader(System.in);
+				M = parser.parse(System.in);
 			else
-				in = new FileReader(new File(args[0]));
-			NFA M = new NFA(in);
+				M = BinaryNFA.read(new File(args[0]));
 			NFAReduction.reduce(M);
 			//output
-			String output = M.toString();
-			System.out.print(output);
+			M.writeTo(System.out);
 		} catch(IOException e) {
 			System.out.println(e);
 		} catch(NFAException e) {
@@ -0,0 +1,377 @@
+package nfa;
+
+import utils.DisjointSets;
+
+/**
+ * Computes the right-equivalence classes of an automaton by Paige-Tarjan partition refinement
+ * The result is the coarsest partition of the states in which equivalent states agree on
+ * being final, have transitions on the same symbols (epsilon included) and, for every block
+ * S and symbol c, either all or none of the states of a block have a c-transition into S.
+ * This is the same relation that NFAEquivalence computes with its pair table, found in
+ * O(m log n) time instead of O(n^2).
+ *
+ * The states are kept in a refinable partition Q and a coarser partition X of compound
+ * blocks, each a union of blocks of Q, with Q stable with respect to X. Each step removes
+ * the smaller of two blocks B of a compound block S from S and splits Q three ways with
+ * respect to B and S \ B. The split by S \ B is found without scanning S \ B by keeping,
+ * for every state x, symbol c and compound block S, the number of c-transitions from x
+ * into S: x has no c-transition into S \ B iff its count into B equals its count into S.
+ * Left-equivalence is computed the same way on the reverse automaton.
+ * @author duncan
+ *
+ */
+public class PartitionRefinement {
+
+	private final CompactNFA C;
+	private final int n;
+
+	//refinable partition Q: the states of block b are elem[first[b]] ... elem[end[b] - 1]
+	private final int[] elem;
+	private final int[] loc;			//position of a state in elem
+	private final int[] blockOf;
+	private final int[] first, end;
+	private final int[] markEnd;		//marked states of b are elem[first[b]] ... elem[markEnd[b] - 1]
+	private int numBlocks;
+	private final int[] touched;		//blocks with marked states
+	private int numTouched;
+
+	//compound blocks X: doubly-linked lists of blocks
+	private final int[] compOf;
+	private final int[] nextBlock, prevBlock;
+	private final int[] head;
+	private final int[] compSize;		//number of blocks in a compound block
+	private int numComps;
+	private final int[] work;			//compound blocks with at least two blocks
+	private final boolean[] inWork;
+	private int workSize;
+
+	//count records: countOf[i] is the record of the i-th reverse transition x -c-> y, holding
+	//the number of c-transitions from x into the compound block of y
+	private final int[] countOf;
+	private int[] counts;
+	private int numCounts;
+	private int[] free;
+	private int numFree;
+
+	/**
+	 * @param c snapshot of the automaton
+	 */
+	public PartitionRefinement(CompactNFA c) {
+		C = c;
+		n = c.numStates();
+		elem = new int[n];
+		loc = new int[n];
+		blockOf = new int[n];
+		first = new int[n];
+		end = new int[n];
+		markEnd = new int[n];
+		touched = new int[n];
+		compOf = new int[n];
+		nextBlock = new int[n];
+		prevBlock = new int[n];
+		head = new int[n];
+		compSize = new int[n];
+		work = new int[n];
+		inWork = new boolean[n];
+		countOf = new int[c.size()];
+		counts = new int[Math.max(16, c.size())];
+		free = new int[16];
+	}
+
+	/**
+	 * Computes the right-equivalence classes
+	 * @return the union-find structure representing the classes
+	 */
+	public DisjointSets compute() {
+		DisjointSets uf = new DisjointSets(n);
+		if(n == 0)
+			return uf;
+		initialPartition();
+		initialCounts();
+		refine();
+		for(int b = 0; b < numBlocks; b++)
+			for(int k = first[b] + 1; k < end[b]; k++)
+				uf.union(elem[first[b]], elem[k]);
+		return uf;
+	}
+
+	/**
+	 * Splits the states by being final and by their set of defined symbols, all in one
+	 * compound block
+	 */
+	private void initialPartition() {
+		for(int q = 0; q < n; q++) {
+			elem[q] = q;
+			loc[q] = q;
+		}
+		numBlocks = 1;
+		first[0] = 0;
+		end[0] = n;
+		markEnd[0] = 0;
+		numComps = 1;
+		head[0] = 0;
+		compSize[0] = 1;
+		nextBlock[0] = prevBlock[0] = -1;
+
+		for(int q = 0; q < n; q++)
+			if(C.isFinal(q))
+				mark(q);
+		split();
+
+		//group the sources of the transitions by symbol
+		int k = C.numSymbols();
+		int[] start = new int[k + 1];
+		for(int i = 0; i < C.size(); i++)
+			start[C.outSymbol(i) + 1]++;
+		for(int c = 0; c < k; c++)
+			start[c + 1] += start[c];
+		int[] sources = new int[C.size()];
+		int[] next = new int[k];
+		System.arraycopy(start, 0, next, 0, k);
+		for(int p = 0; p < n; p++)
+			for(int i = C.outBegin(p); i < C.outEnd(p); i++)
+				sources[next[C.outSymbol(i)]++] = p;
+		for(int c = 0; c < k; c++) {
+			for(int i = start[c]; i < start[c + 1]; i++)
+				mark(sources[i]);
+			split();
+		}
+	}
+
+	/**
+	 * Creates one count record per state x and symbol c, counting the c-transitions from x
+	 */
+	private void initialCounts() {
+		int m = C.size();
+		int k = C.numSymbols();
+		//sort the reverse transitions by (source, symbol) with two counting sorts
+		int[] bySymbol = new int[m];
+		int[] start = new int[k + 1];
+		for(int i = 0; i < m; i++)
+			start[C.inSymbol(i) + 1]++;
+		for(int c = 0; c < k; c++)
+			start[c + 1] += start[c];
+		for(int i = 0; i < m; i++)
+			bySymbol[start[C.inSymbol(i)]++] = i;
+		int[] sorted = new int[m];
+		int[] from = new int[n + 1];
+		for(int i = 0; i < m; i++)
+			from[C.inSource(i) + 1]++;
+		for(int p = 0; p < n; p++)
+			from[p + 1] += from[p];
+		for(int j = 0; j < m; j++) {
+			int i = bySymbol[j];
+			sorted[from[C.inSource(i)]++] = i;
+		}
+
+		for(int j = 0; j < m; j++) {
+			int i = sorted[j];
+			if(j == 0 || C.inSource(i) != C.inSource(sorted[j - 1]) || C.inSymbol(i) != C.inSymbol(sorted[j - 1]))
+				newRecord(0);
+			countOf[i] = numCounts - 1;
+			counts[numCounts - 1]++;
+		}
+	}
+
+	private int newRecord(int count) {
+		int r;
+		if(numFree > 0) {
+			r = free[--numFree];
+		} else {
+			if(numCounts == counts.length) {
+				int[] grown = new int[2 * numCounts];
+				System.arraycopy(counts, 0, grown, 0, numCounts);
+				counts = grown;
+			}
+			r = numCounts++;
+		}
+		counts[r] = count;
+		return r;
+	}
+
+	private void freeRecord(int r) {
+		if(numFree == free.length) {
+			int[] grown = new int[2 * numFree];
+			System.arraycopy(free, 0, grown, 0, numFree);
+			free = grown;
+		}
+		free[numFree++] = r;
+	}
+
+	/**
+	 * Refines Q until every compound block is a single block
+	 */
+	private void refine() {
+		int m = C.size();
+		int k = C.numSymbols();
+		int[] into = new int[m];			//reverse transitions into B
+		int[] grouped = new int[m];			//the same, grouped by symbol
+		int[] symCount = new int[k];		//number of transitions into B on each symbol
+		int[] symEnd = new int[k];
+		int[] symbols = new int[k];			//symbols of the transitions into B
+		int[] pre = new int[n];				//states with a c-transition into B
+		int[] countB = new int[n];			//number of c-transitions from x into B
+		int[] recS = new int[n];			//record of x, c and S
+		int[] recB = new int[n];			//record of x, c and B
+		for(int q = 0; q < n; q++)
+			recB[q] = -1;
+
+		while(workSize > 0) {
+			int S = work[--workSize];
+			inWork[S] = false;
+			if(compSize[S] < 2)
+				continue;
+			//remove the smaller of the first two blocks from S
+			int b1 = head[S];
+			int b2 = nextBlock[b1];
+			int B = end[b1] - first[b1] <= end[b2] - first[b2] ? b1 : b2;
+			unlink(B);
+			int X = numComps++;
+			link(B, X);
+			if(compSize[S] >= 2)
+				push(S);
+
+			//collect the transitions into B before any split moves its states
+			int t = 0;
+			int numSymbols = 0;
+			for(int j = first[B]; j < end[B]; j++) {
+				int y = elem[j];
+				for(int i = C.inBegin(y); i < C.inEnd(y); i++) {
+					into[t++] = i;
+					int c = C.inSymbol(i);
+					if(symCount[c]++ == 0)
+						symbols[numSymbols++] = c;
+				}
+			}
+			int total = 0;
+			for(int s = 0; s < numSymbols; s++) {
+				symEnd[symbols[s]] = total;
+				total += symCount[symbols[s]];
+			}
+			for(int j = 0; j < t; j++)
+				grouped[symEnd[C.inSymbol(into[j])]++] = into[j];
+
+			//split with respect to B and S \ B one symbol at a time
+			for(int s = 0; s < numSymbols; s++) {
+				int c = symbols[s];
+				int hi = symEnd[c];
+				int lo = hi - symCount[c];
+				symCount[c] = 0;
+				int np = 0;
+				for(int j = lo; j < hi; j++) {
+					int i = grouped[j];
+					int x = C.inSource(i);
+					if(countB[x]++ == 0) {
+						pre[np++] = x;
+						recS[x] = countOf[i];
+					}
+				}
+				//states with a c-transition into B
+				for(int j = 0; j < np; j++)
+					mark(pre[j]);
+				split();
+				//states whose c-transitions into S all go into B
+				for(int j = 0; j < np; j++)
+					if(countB[pre[j]] == counts[recS[pre[j]]])
+						mark(pre[j]);
+				split();
+				//move the transitions into B to new count records
+				for(int j = lo; j < hi; j++) {
+					int i = grouped[j];
+					int x = C.inSource(i);
+					int old = countOf[i];
+					if(--counts[old] == 0)
+						freeRecord(old);
+					if(recB[x] == -1)
+						recB[x] = newRecord(countB[x]);
+					countOf[i] = recB[x];
+				}
+				for(int j = 0; j < np; j++) {
+					countB[pre[j]] = 0;
+					recB[pre[j]] = -1;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Marks a state for the next split
+	 */
+	private void mark(int x) {
+		int b = blockOf[x];
+		int j = loc[x];
+		int me = markEnd[b];
+		if(j < me)
+			return;
+		if(me == first[b])
+			touched[numTouched++] = b;
+		int y = elem[me];
+		elem[me] = x;
+		loc[x] = me;
+		elem[j] = y;
+		loc[y] = j;
+		markEnd[b] = me + 1;
+	}
+
+	/**
+	 * Splits every block with marked states into its marked and unmarked states
+	 * The marked part becomes a new block in the same compound block.
+	 */
+	private void split() {
+		for(int t = 0; t < numTouched; t++) {
+			int b = touched[t];
+			if(markEnd[b] == end[b]) {
+				markEnd[b] = first[b];
+				continue;
+			}
+			int nb = numBlocks++;
+			first[nb] = first[b];
+			end[nb] = markEnd[b];
+			markEnd[nb] = first[nb];
+			first[b] = end[nb];
+			markEnd[b] = first[b];
+			for(int j = first[nb]; j < end[nb]; j++)
+				blockOf[elem[j]] = nb;
+			int S = compOf[b];
+			link(nb, S);
+			if(compSize[S] >= 2)
+				push(S);
+		}
+		numTouched = 0;
+	}
+
+	/**
+	 * Adds block b to compound block S
+	 */
+	private void link(int b, int S) {
+		compOf[b] = S;
+		prevBlock[b] = -1;
+		nextBlock[b] = compSize[S] == 0 ? -1 : head[S];
+		if(compSize[S] > 0)
+			prevBlock[head[S]] = b;
+		head[S] = b;
+		compSize[S]++;
+	}
+
+	/**
+	 * Removes block b from its compound block
+	 */
+	private void unlink(int b) {
+		int S = compOf[b];
+		if(prevBlock[b] == -1)
+			head[S] = nextBlock[b];
+		else
+			nextBlock[prevBlock[b]] = nextBlock[b];
+		if(nextBlock[b] != -1)
+			prevBlock[nextBlock[b]] = prevBlock[b];
+		compSize[S]--;
+	}
+
+	private void push(int S) {
+		if(!inWork[S]) {
+			inWork[S] = true;
+			work[workSize++] = S;
+		}
+	}
+
+}
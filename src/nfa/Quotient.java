@@ -0,0 +1,134 @@
+package nfa;
+
+import java.util.Collection;
+
+import nfa.NFA.GraphType;
+import utils.IntSet;
+
+/**
+ * Builds the automaton obtained by merging chosen classes of left- and right-equivalent states
+ * Merging a class of left-equivalent states into its first state moves their outgoing
+ * transitions to it and removes their incoming ones, and merging a class of right-equivalent
+ * states moves their incoming transitions and removes their outgoing ones (see NFA.mergeLeft
+ * and NFA.mergeRight). Doing every merge at once, a transition p -> q survives unless p was
+ * merged into another state as right-equivalent, or q as left-equivalent, and becomes
+ * f(p) -> f(q), where f maps each state to the state it was merged into. The transitions
+ * are mapped in one pass over a snapshot and deduplicated by sorting (see NFA.addTransitions),
+ * in O(n + m log d) time for maximum degree d, instead of being re-added one merge at a time.
+ * Each state can be in at most one class.
+ * @author duncan
+ *
+ */
+public class Quotient {
+
+	private static final byte LEFT = 1, RIGHT = 2;
+
+	private final CompactNFA C;
+	private final int n;
+	private final int[] rep;		//state each state is merged into
+	private final byte[] merged;	//how each state was merged into another, 0 if it was not
+	private final boolean[] inClass;
+	private int[] map;
+
+	/**
+	 * @param c snapshot of the automaton
+	 */
+	public Quotient(CompactNFA c) {
+		C = c;
+		n = c.numStates();
+		rep = new int[n];
+		for(int q = 0; q < n; q++)
+			rep[q] = q;
+		merged = new byte[n];
+		inClass = new boolean[n];
+	}
+
+	/**
+	 * Merges a class of left-equivalent states into its first state
+	 */
+	public void mergeLeft(Collection<Integer> states) {
+		merge(states, LEFT);
+	}
+
+	/**
+	 * Merges a class of right-equivalent states into its first state
+	 */
+	public void mergeRight(Collection<Integer> states) {
+		merge(states, RIGHT);
+	}
+
+	private void merge(Collection<Integer> states, byte side) {
+		int v = -1;
+		for(int w : states) {
+			if(inClass[w])
+				throw new NFAException("State " + w + " is already in a class");
+			inClass[w] = true;
+			if(v == -1) {
+				v = w;
+			} else {
+				rep[w] = v;
+				merged[w] = side;
+			}
+		}
+	}
+
+	/**
+	 * Builds the quotient automaton
+	 * @param relabel if true, removes the states left without transitions and renumbers the
+	 * others as NFA.relabel() does
+	 */
+	public NFA build(boolean relabel) {
+		return build(NFA.defaultGraphType, relabel);
+	}
+
+	/**
+	 * Builds the quotient automaton backed by the given graph implementation
+	 */
+	public NFA build(GraphType type, boolean relabel) {
+		IntSet I = new IntSet(n);
+		IntSet F = new IntSet(n);
+		for(int q = 0; q < n; q++) {
+			if(C.isInitial(q))
+				I.add(rep[q]);
+			if(C.isFinal(q))
+				F.add(rep[q]);
+		}
+		NFA a = new NFA(n, C.alphabet().toString(), I, F, type);
+
+		int m = 0;
+		for(int p = 0; p < n; p++)
+			if(merged[p] != RIGHT)
+				for(int i = C.outBegin(p); i < C.outEnd(p); i++)
+					if(merged[C.outTarget(i)] != LEFT)
+						m++;
+		int[] from = new int[m];
+		int[] to = new int[m];
+		int[] sym = new int[m];
+		int j = 0;
+		for(int p = 0; p < n; p++)
+			if(merged[p] != RIGHT)
+				for(int i = C.outBegin(p); i < C.outEnd(p); i++)
+					if(merged[C.outTarget(i)] != LEFT) {
+						from[j] = rep[p];
+						to[j] = rep[C.outTarget(i)];
+						sym[j] = C.outSymbol(i);
+						j++;
+					}
+		a.addTransitions(from, to, sym);
+
+		map = rep.clone();
+		if(relabel) {
+			int[] renumber = a.relabel();
+			for(int q = 0; q < n; q++)
+				map[q] = renumber[rep[q]];
+		}
+		return a;
+	}
+
+	/**
+	 * Returns the state of the last automaton built that each state was merged into, -1 if
+	 * the state was removed by relabelling
+	 */
+	public int[] stateMap() { return map; }
+
+}
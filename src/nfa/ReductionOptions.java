@@ -0,0 +1,12 @@
+package nfa;
+
+/**
+ * Settings for NFAReduction.reduce(NFA, ReductionOptions)
+ * @author duncan
+ *
+ */
+public class ReductionOptions {
+	public boolean structural = true;		//merge structurally identical states first (see StructuralReduction)
+	public NFAEquivalence.Options equivalence = new NFAEquivalence.Options();	//how the equivalences are computed
+	public boolean relabel = true;		//remove the merged states and renumber the others
+}
@@ -0,0 +1,48 @@
+package nfa;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The outcome of NFAReduction.reduce(NFA, ReductionOptions)
+ * The merged classes are given as states of the input; the states that the structural pass
+ * merged into a state of a class are listed with it.
+ * @author duncan
+ *
+ */
+public class ReductionResult {
+
+	private final NFA reduced;
+	private final int[] stateMap;
+	private final List<Set<Integer>> left;
+	private final List<Set<Integer>> right;
+
+	ReductionResult(NFA reduced, int[] stateMap, List<Set<Integer>> left, List<Set<Integer>> right) {
+		this.reduced = reduced;
+		this.stateMap = stateMap;
+		this.left = left;
+		this.right = right;
+	}
+
+	/**
+	 * Returns the reduced automaton
+	 */
+	public NFA getNFA() { return reduced; }
+
+	/**
+	 * Returns the state of the reduced automaton each state of the input became, -1 if the
+	 * state was removed as it is unreachable or cannot reach a final state
+	 */
+	public int[] getStateMap() { return stateMap; }
+
+	/**
+	 * Returns the classes of left-equivalent states that were merged, as states of the input
+	 */
+	public List<Set<Integer>> getLeftClasses() { return left; }
+
+	/**
+	 * Returns the classes of right-equivalent states that were merged, as states of the input
+	 */
+	public List<Set<Integer>> getRightClasses() { return right; }
+
+}
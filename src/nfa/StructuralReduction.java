@@ -0,0 +1,89 @@
+package nfa;
+
+import java.util.HashMap;
+
+import utils.LongRange;
+
+/**
+ * Merges states with identical successors or identical predecessors
+ * Two states that agree on being final and have the same set of (symbol, target) transitions
+ * are right-equivalent, and two states that agree on being initial and have the same set of
+ * (symbol, source) transitions are left-equivalent, so they can be merged without the
+ * pairwise analysis of NFAEquivalence. Each pass hashes the sorted transitions of every state
+ * of a snapshot in O(n + m) expected time. Merging states can make more states identical, so
+ * right and left passes alternate until neither merges anything.
+ * This is meant as a cheap pre-pass that shrinks the automaton before its equivalences are
+ * computed.
+ * @author duncan
+ *
+ */
+public class StructuralReduction {
+
+	/**
+	 * Merges states with identical successors or predecessors until there are none
+	 * The merged states are left without transitions; relabel the NFA to remove them.
+	 * @param m the NFA
+	 * @return the number of states removed
+	 */
+	public static int reduce(NFA m) {
+		return reduce(m, null);
+	}
+
+	/**
+	 * Merges states with identical successors or predecessors, recording the merges
+	 * @param m the NFA
+	 * @param into if not null, into[p] is set to the state p was merged into; follow the
+	 * entries until a state that was not merged is reached
+	 * @return the number of states removed
+	 */
+	public static int reduce(NFA m, int[] into) {
+		int removed = 0;
+		boolean right = true;
+		int idle = 0;			//consecutive passes that merged nothing
+		while(idle < 2) {
+			int merged = pass(m, right, into);
+			removed += merged;
+			idle = merged == 0 ? idle + 1 : 0;
+			right = !right;
+		}
+		return removed;
+	}
+
+	/**
+	 * Merges the states with identical successors (right) or predecessors (left) once
+	 * @return the number of states merged into another
+	 */
+	private static int pass(NFA m, boolean right, int[] into) {
+		CompactNFA C = m.snapshot();
+		if(!right)
+			C = C.reverse();
+		int n = C.numStates();
+		//the transitions of each state are sorted by (symbol, other end), so a state's keys are
+		//already in a canonical order
+		long[] keys = new long[C.size()];
+		for(int i = 0; i < keys.length; i++)
+			keys[i] = ((long)C.outSymbol(i) << 32) | C.outTarget(i);
+
+		HashMap<LongRange, Integer> finals = new HashMap<>();
+		HashMap<LongRange, Integer> others = new HashMap<>();
+		int merged = 0;
+		for(int p = 0; p < n; p++) {
+			if(C.outBegin(p) == C.outEnd(p) && C.inBegin(p) == C.inEnd(p))
+				continue;		//removed state
+			LongRange key = new LongRange(keys, C.outBegin(p), C.outEnd(p));
+			HashMap<LongRange, Integer> states = C.isFinal(p) ? finals : others;
+			Integer v = states.putIfAbsent(key, p);
+			if(v == null)
+				continue;
+			if(right)
+				m.mergeRight(v, p);
+			else
+				m.mergeLeft(v, p);
+			if(into != null)
+				into[p] = v;
+			merged++;
+		}
+		return merged;
+	}
+
+}
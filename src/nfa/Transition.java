@@ -10,21 +10,28 @@ import graph.*;
 public class Transition extends Edge {
 
 	private char symbol;
+	private int index;		//index of the symbol in the alphabet, see Alphabet
 	
-	public Transition(int u, int v, char c) {
+	public Transition(int u, int v, char c, int index) {
 		super(u, v);
 		symbol = c;
+		this.index = index;
 	}
 	
 	/**
 	 * Copy constructor
 	 */
 	public Transition(Transition t) {
-		this(t.from(), t.to(), t.symbol);
+		this(t.from(), t.to(), t.symbol, t.index);
 	}
 	
 	public char symbol() { return symbol; }
 	
+	/**
+	 * Returns the index of the symbol in the alphabet, Alphabet.EPSILON for epsilon transitions
+	 */
+	public int symbolIndex() { return index; }
+	
     public boolean equals(Object obj) {
     	if(super.equals(obj)) {
     		if (!(obj instanceof Transition))
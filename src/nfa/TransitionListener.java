@@ -0,0 +1,29 @@
+package nfa;
+
+/**
+ * Receives the changes made to an NFA (see NFA.addListener)
+ * Listeners are called after the change has been made.
+ * @author duncan
+ *
+ */
+public interface TransitionListener {
+
+	/**
+	 * Called when the transition u -> v on the symbol with the given index is added
+	 */
+	public void transitionAdded(int u, int v, int symbolIndex);
+
+	/**
+	 * Called when the transition u -> v on the symbol with the given index is removed
+	 */
+	public void transitionRemoved(int u, int v, int symbolIndex);
+
+	/**
+	 * Called when states are renumbered or merged, the automaton is reversed or the initial
+	 * or final states change
+	 * A merge only calls this, not transitionAdded and transitionRemoved for the transitions
+	 * it moves.
+	 */
+	public void statesChanged();
+
+}
@@ -0,0 +1,132 @@
+package nfa;
+
+import java.util.Arrays;
+
+/**
+ * Hash set of (from, to, symbol index) triples with open addressing and linear probing,
+ * used to detect duplicate transitions in constant expected time without boxing.
+ * Each triple keeps the transition object it stands for, so that it can be removed from the
+ * graph without searching for it.
+ * @author duncan
+ *
+ */
+class TransitionSet {
+
+	private static final int EMPTY = -1;
+
+	private long[] ends;		//from << 32 | to
+	private int[] symbols;		//symbol index, EMPTY if the slot is free
+	private Transition[] transitions;
+	private int size;
+	private int mask;
+
+	public TransitionSet(int expected) {
+		int capacity = 16;
+		while(capacity < expected * 2)
+			capacity <<= 1;
+		allocate(capacity);
+	}
+
+	private void allocate(int capacity) {
+		ends = new long[capacity];
+		symbols = new int[capacity];
+		transitions = new Transition[capacity];
+		Arrays.fill(symbols, EMPTY);
+		mask = capacity - 1;
+		size = 0;
+	}
+
+	private static long key(int from, int to) {
+		return ((long)from << 32) | (to & 0xffffffffL);
+	}
+
+	private int slot(long key, int symbol) {
+		long h = (key ^ (key >>> 29) ^ ((long)symbol << 17)) * 0x9E3779B97F4A7C15L;
+		return (int)(h >>> 40) & mask;
+	}
+
+	/**
+	 * @return the slot holding the triple, or the free slot where it would be inserted
+	 */
+	private int find(long key, int symbol) {
+		int i = slot(key, symbol);
+		while(symbols[i] != EMPTY && (ends[i] != key || symbols[i] != symbol))
+			i = (i + 1) & mask;
+		return i;
+	}
+
+	public boolean contains(int from, int to, int symbol) {
+		return symbols[find(key(from, to), symbol)] != EMPTY;
+	}
+
+	/**
+	 * Adds the triple with its transition
+	 * @return true if it was not already in the set
+	 */
+	public boolean add(int from, int to, int symbol, Transition t) {
+		long key = key(from, to);
+		int i = find(key, symbol);
+		if(symbols[i] != EMPTY)
+			return false;
+		ends[i] = key;
+		symbols[i] = symbol;
+		transitions[i] = t;
+		if(++size * 2 > symbols.length)
+			rehash(symbols.length * 2);
+		return true;
+	}
+
+	/**
+	 * Removes the triple
+	 * @return the transition of the triple, null if it was not in the set
+	 */
+	public Transition remove(int from, int to, int symbol) {
+		int i = find(key(from, to), symbol);
+		if(symbols[i] == EMPTY)
+			return null;
+		Transition removed = transitions[i];
+		//backward-shift deletion keeps probe sequences intact without tombstones
+		int j = i;
+		while(true) {
+			j = (j + 1) & mask;
+			if(symbols[j] == EMPTY)
+				break;
+			int home = slot(ends[j], symbols[j]);
+			//move j into the hole at i unless its home lies cyclically in (i, j]
+			if(i <= j ? (home <= i || home > j) : (home <= i && home > j)) {
+				ends[i] = ends[j];
+				symbols[i] = symbols[j];
+				transitions[i] = transitions[j];
+				i = j;
+			}
+		}
+		symbols[i] = EMPTY;
+		transitions[i] = null;
+		size--;
+		return removed;
+	}
+
+	public void clear() {
+		Arrays.fill(symbols, EMPTY);
+		Arrays.fill(transitions, null);
+		size = 0;
+	}
+
+	public int size() { return size; }
+
+	private void rehash(int capacity) {
+		long[] oldEnds = ends;
+		int[] oldSymbols = symbols;
+		Transition[] oldTransitions = transitions;
+		allocate(capacity);
+		for(int i = 0; i < oldSymbols.length; i++)
+			if(oldSymbols[i] != EMPTY) {
+				int j = find(oldEnds[i], oldSymbols[i]);
+				ends[j] = oldEnds[i];
+				symbols[j] = oldSymbols[i];
+				transitions[j] = oldTransitions[i];
+				size++;
+			}
+	}
+
+}
@@ -0,0 +1,57 @@
+package nfa.expt;
+
+import nfa.NFA;
+import nfa.NFAEquivalence;
+import nfa.NFAEquivalence.Method;
+import nfa.generators.AbstractNFAGenerator;
+import nfa.generators.RegexMethod;
+import nfa.generators.SpanningTreeMethod;
+
+/**
+ * Times the computation of the left and right equivalences on NFAs generated by the regex and
+ * spanning tree methods, for each equivalence method
+ * @author duncan
+ *
+ */
+public class ExptEquivalenceBenchmark {
+
+	/**
+	 * Runs the equivalence computation nTests times on fresh NFAs
+	 * @return the average time in milliseconds
+	 */
+	public static double run(AbstractNFAGenerator gen, int n, double density, String alphabet, Method method, int nTests) {
+		long total = 0;
+		for(int k = 0; k < nTests; k++) {
+			NFA m = gen.generate(n, density, alphabet);
+			long start = System.nanoTime();
+			new NFAEquivalence(m, method);
+			total += System.nanoTime() - start;
+		}
+		return total / 1e6 / nTests;
+	}
+
+	public static void main(String[] args) {
+		if(args.length != 4) {
+			System.out.println("Usage: ExptEquivalenceBenchmark numStates density alphabet numTests");
+			System.exit(0);
+		}
+		int n = Integer.parseInt(args[0]);
+		double density = Double.parseDouble(args[1]);
+		String alphabet = args[2];
+		int nTests = Integer.parseInt(args[3]);
+
+		AbstractNFAGenerator[] generators = { new RegexMethod(), new SpanningTreeMethod() };
+		String[] names = { "regex", "spanning" };
+		//warm up the JIT before timing
+		for(AbstractNFAGenerator gen : generators)
+			for(Method method : Method.values())
+				run(gen, Math.min(n, 200), density, alphabet, method, 3);
+
+		System.out.println("generator\tmethod\tms");
+		for(int i = 0; i < generators.length; i++)
+			for(Method method : Method.values())
+				System.out.println(String.format("%s\t%s\t%.1f", names[i], method,
+						run(generators[i], n, density, alphabet, method, nTests)));
+	}
+
+}
@@ -1,10 +1,12 @@
 package nfa.generators;
 
+import java.io.IOException;
+
 import nfa.NFA;
 
 public class MainGenerator {
 
-	public static void main(String[] args) {
+	public static void main(String[] args) throws IOException {
 		if(args.length == 0) {
 			System.out.println("Usage:		./generate [method] [size] [density] [alphabet]");
 			System.out.println("method:		generation method, either partition, regex or spanning");
@@ -34,7 +36,7 @@ public class MainGenerator {
 		double density = Double.parseDouble(args[2]);
 		String alphabet = args[3];
 		NFA m = generator.generate(len, density, alphabet);
-		System.out.print(m.toString());
+		m.writeTo(System.out);
 		
 	}
 	
@@ -1,12 +1,11 @@
 package nfa.generators;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 import java.util.Stack;
 
 import nfa.*;
+import utils.IntSet;
 
 /**
  * Generates a trim NFA
@@ -24,9 +23,7 @@ public class PartitionMethod extends AbstractNFAGenerator {
 	 * density is the probability of generating a transition for every pair of states, for every symbol of alphabet
 	 */
 	public NFA generate(int n, double density, String alphabet) {
-		Set<Integer> initialStates = new HashSet<Integer>();
-		Set<Integer> finalStates = new HashSet<Integer>();
-		NFA m = new NFA(n, alphabet, initialStates, finalStates);
+		NFA m = new NFA(n, alphabet, new IntSet(), new IntSet());
 		
 		//generate random transitions
 		for(int i = 0; i < n; i++) {
@@ -38,8 +35,8 @@ public class PartitionMethod extends AbstractNFAGenerator {
 			}
 		}
 		
-		initialStates.add(0);
-		finalStates.add((int)(Math.random() * n));
+		m.initialStates().add(0);
+		m.finalStates().add((int)(Math.random() * n));
 //		System.out.println(m);
 		connect(m, 3);
 		return m;
@@ -57,7 +54,8 @@ public class PartitionMethod extends AbstractNFAGenerator {
 			A.add(i);
 		//DFS from initial states
 		List<Integer> B = new ArrayList<>();
-		boolean[] marked = mark(m);
+		CompactNFA snapshot = m.snapshot();
+		boolean[] marked = mark(snapshot);
 		for(Integer i = 0; i < n; i++)
 			if(!marked[i]) {
 				A.remove((Integer)i);
@@ -65,15 +63,13 @@ public class PartitionMethod extends AbstractNFAGenerator {
 			}
 		
 		//reverse DFS on final states
-		m.reverse();
 		List<Integer> C = new ArrayList<>();
-		marked = mark(m);
+		marked = mark(snapshot.reverse());
 		for(Integer i = 0; i < n; i++)
 			if(!marked[i]) {
 				A.remove((Integer)i);
 				C.add(i);
 			}
-		m.reverse();
 		
 //		System.out.println("A: " + A);
 //		System.out.println("B: " + B);
@@ -104,21 +100,22 @@ public class PartitionMethod extends AbstractNFAGenerator {
 		//System.out.println(m);
 	}
 	
-	private static boolean[] mark(NFA m) {
+	private static boolean[] mark(CompactNFA m) {
 		
 		boolean[] marked = new boolean[m.numStates()];
 		Stack<Integer> stack = new Stack<>();
-		for(int i : m.initialStates()) {
-			stack.push(i);
-			marked[i] = true;
-		}
+		for(int i = 0; i < m.numStates(); i++)
+			if(m.isInitial(i)) {
+				stack.push(i);
+				marked[i] = true;
+			}
 		
 		while(!stack.isEmpty()) {
 			int v = stack.pop();
-			for(Transition t : m.transitionsFrom(v))
-				if(!marked[t.to()]) {
-					stack.add(t.to());
-					marked[t.to()] = true;
+			for(int i = m.outBegin(v); i < m.outEnd(v); i++)
+				if(!marked[m.outTarget(i)]) {
+					stack.add(m.outTarget(i));
+					marked[m.outTarget(i)] = true;
 				}
 		}
 		
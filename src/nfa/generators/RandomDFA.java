@@ -1,11 +1,11 @@
 package nfa.generators;
 
-import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.Queue;
 import java.util.Random;
 
 import nfa.DFA;
+import utils.IntSet;
 
 /**
  * Static utility class for generating random DFAs
@@ -24,8 +24,7 @@ public class RandomDFA {
 	 */
 	public static DFA generate(int numState, String alphabet) {
 		Random rand = new Random();
-		HashSet<Integer> finalStates = new HashSet<>();
-		DFA m = new DFA(numState, alphabet, 0, finalStates);
+		DFA m = new DFA(numState, alphabet, 0, new IntSet());
 		Queue<Integer> queue = new LinkedList<>();
 		
 		boolean[] visited = new boolean[numState];
@@ -47,7 +46,7 @@ public class RandomDFA {
 		//select final states
 		for(int p = 0; p < numState; p++) {
 			if(rand.nextBoolean())
-				finalStates.add(p);
+				m.finalStates().add(p);
 		}
 		
 		//finalStates.add(rand.nextInt(numState));
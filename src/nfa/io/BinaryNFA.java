@@ -0,0 +1,219 @@
+package nfa.io;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+import nfa.CompactNFA;
+import nfa.NFA;
+
+/**
+ * Binary NFA file format
+ * All values are little-endian and every section starts on an 8-byte boundary:
+ * <pre>
+ * int   magic ("NFAB")
+ * int   version
+ * int   n, the number of states
+ * int   m, the number of transitions
+ * int   k, the length of the alphabet
+ * char  alphabet[k]                    (UTF-16)
+ * long  initial[(n + 63) / 64]         (bitset)
+ * long  accepting[(n + 63) / 64]       (bitset)
+ * int   outStart[n + 1], outTarget[m], outSymbol[m]
+ * int   inStart[n + 1], inSource[m], inSymbol[m]
+ * </pre>
+ * The last two lines are the CSR arrays of CompactNFA. Symbols are alphabet indices with
+ * epsilon at 0. MappedNFA loads the format without copying the arrays.
+ * @author duncan
+ *
+ */
+public class BinaryNFA {
+
+	public static final int MAGIC = 0x4241464e;		//"NFAB" read little-endian
+	public static final int VERSION = 1;
+
+	static final int HEADER = 20;		//bytes before the alphabet
+
+	private BinaryNFA() { }
+
+	/**
+	 * Offset of the first byte after the alphabet
+	 */
+	static long alphabetEnd(int k) {
+		return align(HEADER + 2L * k);
+	}
+
+	static long align(long offset) {
+		return (offset + 7) & ~7L;
+	}
+
+	/**
+	 * Number of longs in a bitset of n states
+	 */
+	static int words(int n) {
+		return (n + 63) >>> 6;
+	}
+
+	/**
+	 * Checks if a file starts with the magic number of the binary format
+	 */
+	public static boolean isBinary(File file) throws IOException {
+		try(DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+			return file.length() >= HEADER && Integer.reverseBytes(in.readInt()) == MAGIC;
+		}
+	}
+
+	/**
+	 * Reads an NFA from a file in either the binary or the text format
+	 */
+	public static NFA read(File file) throws IOException {
+		if(isBinary(file))
+			return new MappedNFA(file).toNFA();
+		return new NFAParser().parse(file);
+	}
+
+	/**
+	 * Writes an NFA to a file in the binary format
+	 */
+	public static void write(NFA m, File file) throws IOException {
+		write(m.snapshot(), file);
+	}
+
+	/**
+	 * Writes a snapshot to a file in the binary format
+	 */
+	public static void write(CompactNFA c, File file) throws IOException {
+		try(FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			write(c, ch);
+		}
+	}
+
+	/**
+	 * Writes a snapshot to a channel in the binary format
+	 */
+	public static void write(CompactNFA c, WritableByteChannel out) throws IOException {
+		Output o = new Output(out);
+		int n = c.numStates();
+		int m = c.size();
+		String alphabet = c.alphabet().toString();
+
+		o.putInt(MAGIC);
+		o.putInt(VERSION);
+		o.putInt(n);
+		o.putInt(m);
+		o.putInt(alphabet.length());
+		for(int i = 0; i < alphabet.length(); i++)
+			o.putChar(alphabet.charAt(i));
+		o.pad();
+
+		for(int w = 0; w < words(n); w++) {
+			long bits = 0;
+			for(int q = w << 6; q < Math.min(n, (w + 1) << 6); q++)
+				if(c.isInitial(q))
+					bits |= 1L << q;
+			o.putLong(bits);
+		}
+		for(int w = 0; w < words(n); w++) {
+			long bits = 0;
+			for(int q = w << 6; q < Math.min(n, (w + 1) << 6); q++)
+				if(c.isFinal(q))
+					bits |= 1L << q;
+			o.putLong(bits);
+		}
+
+		for(int p = 0; p <= n; p++)
+			o.putInt(p < n ? c.outBegin(p) : m);
+		for(int i = 0; i < m; i++)
+			o.putInt(c.outTarget(i));
+		for(int i = 0; i < m; i++)
+			o.putInt(c.outSymbol(i));
+		o.pad();
+		for(int p = 0; p <= n; p++)
+			o.putInt(p < n ? c.inBegin(p) : m);
+		for(int i = 0; i < m; i++)
+			o.putInt(c.inSource(i));
+		for(int i = 0; i < m; i++)
+			o.putInt(c.inSymbol(i));
+		o.pad();
+		o.flush();
+	}
+
+	/**
+	 * Buffered little-endian output that tracks the offset for alignment
+	 */
+	private static class Output {
+		private final WritableByteChannel out;
+		private final ByteBuffer buf = ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+		private long offset;
+
+		Output(WritableByteChannel out) {
+			this.out = out;
+		}
+
+		void putInt(int v) throws IOException {
+			ensure(4);
+			buf.putInt(v);
+			offset += 4;
+		}
+
+		void putLong(long v) throws IOException {
+			ensure(8);
+			buf.putLong(v);
+			offset += 8;
+		}
+
+		void putChar(char v) throws IOException {
+			ensure(2);
+			buf.putChar(v);
+			offset += 2;
+		}
+
+		void pad() throws IOException {
+			while(offset != align(offset)) {
+				ensure(1);
+				buf.put((byte)0);
+				offset++;
+			}
+		}
+
+		private void ensure(int bytes) throws IOException {
+			if(buf.remaining() < bytes)
+				flush();
+		}
+
+		void flush() throws IOException {
+			buf.flip();
+			while(buf.hasRemaining())
+				out.write(buf);
+			buf.clear();
+		}
+	}
+
+	/**
+	 * Converts between the text and binary formats
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length < 2) {
+			System.out.println("Usage: java nfa.io.BinaryNFA inFile outFile [-text]");
+			System.out.println("Writes inFile (text or binary) to outFile in the binary format, or in the text format with -text.");
+			System.exit(0);
+		}
+		NFA m = read(new File(args[0]));
+		if(args.length > 2 && args[2].equals("-text")) {
+			try(FileChannel ch = FileChannel.open(new File(args[1]).toPath(), StandardOpenOption.CREATE,
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+				m.writeTo(ch);
+			}
+		} else {
+			write(m, new File(args[1]));
+		}
+	}
+
+}
@@ -0,0 +1,205 @@
+package nfa.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.List;
+
+import nfa.Alphabet;
+import nfa.DFA;
+import nfa.NFA;
+import nfa.NFAException;
+import nfa.Transition;
+import utils.IntSet;
+
+/**
+ * Read-only NFA served from a memory-mapped file in the binary format (see BinaryNFA)
+ * Nothing is copied on load: the transition lists returned by transitionsFrom and
+ * transitionsTo are views that read the mapped CSR arrays on access. Use toNFA() to get
+ * a mutable copy.
+ * @author duncan
+ *
+ */
+public class MappedNFA {
+
+	private final int n;
+	private final int m;
+	private final Alphabet alphabet;
+
+	private final LongBuffer initial;
+	private final LongBuffer accepting;
+	private final IntBuffer outStart, outTarget, outSymbol;
+	private final IntBuffer inStart, inSource, inSymbol;
+
+	/**
+	 * Maps a file in the binary format
+	 */
+	public MappedNFA(File file) throws IOException {
+		try(FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			if(ch.size() < BinaryNFA.HEADER)
+				throw new NFAException(file + " is not a binary NFA file");
+			ByteBuffer header = map(ch, file, 0, BinaryNFA.HEADER);
+			if(header.getInt(0) != BinaryNFA.MAGIC)
+				throw new NFAException(file + " is not a binary NFA file");
+			if(header.getInt(4) != BinaryNFA.VERSION)
+				throw new NFAException("Unsupported binary NFA version " + header.getInt(4));
+			n = header.getInt(8);
+			m = header.getInt(12);
+			int k = header.getInt(16);
+			if(n < 0 || m < 0 || k < 0)
+				throw new NFAException(file + " has a negative count in its header");
+
+			char[] symbols = new char[k];
+			ByteBuffer a = map(ch, file, BinaryNFA.HEADER, 2L * k);
+			for(int i = 0; i < k; i++)
+				symbols[i] = a.getChar(2 * i);
+			alphabet = new Alphabet(new String(symbols));
+
+			long offset = BinaryNFA.alphabetEnd(k);
+			long words = BinaryNFA.words(n);
+			initial = map(ch, file, offset, 8 * words).asLongBuffer();
+			offset += 8 * words;
+			accepting = map(ch, file, offset, 8 * words).asLongBuffer();
+			offset += 8 * words;
+
+			outStart = map(ch, file, offset, 4L * (n + 1)).asIntBuffer();
+			offset += 4L * (n + 1);
+			outTarget = map(ch, file, offset, 4L * m).asIntBuffer();
+			offset += 4L * m;
+			outSymbol = map(ch, file, offset, 4L * m).asIntBuffer();
+			offset = BinaryNFA.align(offset + 4L * m);
+			inStart = map(ch, file, offset, 4L * (n + 1)).asIntBuffer();
+			offset += 4L * (n + 1);
+			inSource = map(ch, file, offset, 4L * m).asIntBuffer();
+			offset += 4L * m;
+			inSymbol = map(ch, file, offset, 4L * m).asIntBuffer();
+		}
+	}
+
+	/**
+	 * Maps a section of the file
+	 * @throws NFAException if the file ends before the section does
+	 */
+	private static ByteBuffer map(FileChannel ch, File file, long offset, long length) throws IOException {
+		if(offset + length > ch.size())
+			throw new NFAException(file + " is truncated");
+		return ch.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/**
+	 * The number of states in the automaton
+	 */
+	public int numStates() { return n; }
+
+	/**
+	 * The number of transitions in the automaton
+	 */
+	public int size() { return m; }
+
+	public Alphabet alphabet() { return alphabet; }
+
+	public boolean isInitial(int q) {
+		return (initial.get(q >>> 6) & (1L << q)) != 0;
+	}
+
+	public boolean isFinal(int q) {
+		return (accepting.get(q >>> 6) & (1L << q)) != 0;
+	}
+
+	public int outBegin(int p) { return outStart.get(p); }
+
+	public int outEnd(int p) { return outStart.get(p + 1); }
+
+	public int outTarget(int i) { return outTarget.get(i); }
+
+	public int outSymbol(int i) { return outSymbol.get(i); }
+
+	public int inBegin(int p) { return inStart.get(p); }
+
+	public int inEnd(int p) { return inStart.get(p + 1); }
+
+	public int inSource(int i) { return inSource.get(i); }
+
+	public int inSymbol(int i) { return inSymbol.get(i); }
+
+	/**
+	 * Returns the transitions leaving p as a view of the mapped file
+	 */
+	public List<Transition> transitionsFrom(int p) {
+		int begin = outBegin(p);
+		int end = outEnd(p);
+		return new AbstractList<Transition>() {
+			public Transition get(int i) {
+				int c = outSymbol(begin + i);
+				return new Transition(p, outTarget(begin + i), alphabet.symbol(c), c);
+			}
+
+			public int size() { return end - begin; }
+		};
+	}
+
+	/**
+	 * Returns the transitions entering p as a view of the mapped file
+	 */
+	public List<Transition> transitionsTo(int p) {
+		int begin = inBegin(p);
+		int end = inEnd(p);
+		return new AbstractList<Transition>() {
+			public Transition get(int i) {
+				int c = inSymbol(begin + i);
+				return new Transition(inSource(begin + i), p, alphabet.symbol(c), c);
+			}
+
+			public int size() { return end - begin; }
+		};
+	}
+
+	/**
+	 * Returns a mutable copy of the automaton
+	 */
+	public NFA toNFA() {
+		NFA a = new NFA(n, alphabet.toString(), states(initial), states(accepting));
+		addTransitions(a);
+		return a;
+	}
+
+	/**
+	 * Returns a mutable copy of the automaton as a DFA
+	 * @throws NFAException if the automaton is not deterministic
+	 */
+	public DFA toDFA() {
+		IntSet I = states(initial);
+		if(I.size() != 1)
+			throw new NFAException("A DFA must have exactly one initial state");
+		DFA a = new DFA(n, alphabet.toString(), I.next(0), states(accepting));
+		addTransitions(a);
+		return a;
+	}
+
+	private IntSet states(LongBuffer bits) {
+		IntSet s = new IntSet(n);
+		for(int q = 0; q < n; q++)
+			if((bits.get(q >>> 6) & (1L << q)) != 0)
+				s.add(q);
+		return s;
+	}
+
+	private void addTransitions(NFA a) {
+		int[] from = new int[m];
+		int[] to = new int[m];
+		int[] sym = new int[m];
+		for(int p = 0; p < n; p++)
+			for(int i = outBegin(p); i < outEnd(p); i++)
+				from[i] = p;
+		outTarget.get(0, to);
+		outSymbol.get(0, sym);
+		a.addTransitions(from, to, sym);
+	}
+
+}
@@ -0,0 +1,401 @@
+package nfa.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import nfa.Alphabet;
+import nfa.NFA;
+import nfa.NFAException;
+import utils.IntSet;
+
+/**
+ * Parses the text NFA format (see NFA(Reader)) directly from bytes
+ * Digits and symbols are scanned straight out of a ByteBuffer without creating a String per
+ * line. Files are memory-mapped and the transition lines are split into chunks on newline
+ * boundaries that are parsed in parallel; the per-chunk transition arrays are then merged
+ * and added with NFA.addTransitions. The text is assumed to be UTF-8.
+ * @author duncan
+ *
+ */
+public class NFAParser {
+
+	private static final int MAX_CHUNK = 1 << 30;		//largest region mapped at once
+	private static final int MIN_CHUNK = 1 << 20;		//smaller bodies are not split
+
+	private final int threads;
+	private long bytes;			//size of the last input
+	private long nanos;			//time taken by the last parse
+
+	/**
+	 * Creates a parser that uses one thread per available processor
+	 */
+	public NFAParser() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Creates a parser
+	 * @param threads the number of threads used to parse the transitions
+	 */
+	public NFAParser(int threads) {
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * Parses an NFA from a file, memory-mapping the transitions
+	 */
+	public NFA parse(File file) throws IOException {
+		long start = System.nanoTime();
+		try(FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = ch.size();
+			ByteBuffer head = ch.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, MAX_CHUNK));
+			Header h = parseHeader(head);
+			long[] bounds = chunkBounds(ch, h.end, size);
+			List<ByteBuffer> chunks = new ArrayList<>();
+			for(int i = 0; i + 1 < bounds.length; i++)
+				chunks.add(ch.map(FileChannel.MapMode.READ_ONLY, bounds[i], bounds[i + 1] - bounds[i]));
+			NFA m = build(h, chunks);
+			bytes = size;
+			nanos = System.nanoTime() - start;
+			return m;
+		}
+	}
+
+	/**
+	 * Parses an NFA from a stream, reading it fully into memory first
+	 */
+	public NFA parse(InputStream in) throws IOException {
+		long start = System.nanoTime();
+		ReadableByteChannel ch = Channels.newChannel(in);
+		ByteBuffer buf = ByteBuffer.allocate(1 << 16);
+		while(ch.read(buf) != -1) {
+			if(!buf.hasRemaining()) {
+				ByteBuffer bigger = ByteBuffer.allocate(buf.capacity() * 2);
+				buf.flip();
+				bigger.put(buf);
+				buf = bigger;
+			}
+		}
+		buf.flip();
+		NFA m = parse(buf);
+		nanos = System.nanoTime() - start;
+		return m;
+	}
+
+	/**
+	 * Parses an NFA from the bytes between the position and the limit of the buffer
+	 */
+	public NFA parse(ByteBuffer buf) {
+		long start = System.nanoTime();
+		ByteBuffer in = buf.slice();
+		Header h = parseHeader(in);
+		int size = in.limit();
+		int n = (int)Math.max(1, Math.min(threads, (size - h.end) / MIN_CHUNK));
+		List<ByteBuffer> chunks = new ArrayList<>();
+		int from = (int)h.end;
+		for(int i = 1; i <= n && from < size; i++) {
+			int to = i == n ? size : (int)Math.max(from, h.end + (size - h.end) * i / n);
+			while(to < size && in.get(to - 1) != '\n')
+				to++;
+			ByteBuffer chunk = in.duplicate();
+			chunk.position(from);
+			chunk.limit(to);
+			chunks.add(chunk.slice());
+			from = to;
+		}
+		NFA m = build(h, chunks);
+		bytes = size;
+		nanos = System.nanoTime() - start;
+		return m;
+	}
+
+	/**
+	 * Throughput of the last parse in megabytes (2^20 bytes) per second
+	 */
+	public double throughput() {
+		return nanos == 0 ? 0 : (bytes / (double)(1 << 20)) / (nanos / 1e9);
+	}
+
+	/**
+	 * Size of the last input in bytes
+	 */
+	public long bytesRead() { return bytes; }
+
+	/**
+	 * Duration of the last parse in milliseconds
+	 */
+	public long millis() { return nanos / 1000000; }
+
+	/**
+	 * The four header lines and the offset where the transitions begin
+	 */
+	private static class Header {
+		int numStates;
+		String alphabet;
+		IntSet initial = new IntSet();
+		IntSet accepting = new IntSet();
+		long end;
+	}
+
+	private Header parseHeader(ByteBuffer in) {
+		Header h = new Header();
+		Scanner sc = new Scanner(in, 0, in.limit());
+		sc.skipBlanks();
+		h.numStates = sc.nextInt();
+		sc.nextLine();
+		h.alphabet = sc.line();
+		while(sc.skipBlanks())
+			h.initial.add(sc.nextInt());
+		sc.nextLine();
+		while(sc.skipBlanks())
+			h.accepting.add(sc.nextInt());
+		sc.nextLine();
+		h.end = sc.pos;
+		return h;
+	}
+
+	/**
+	 * Splits [begin, end) of the file into chunks that end on a newline
+	 */
+	private long[] chunkBounds(FileChannel ch, long begin, long end) throws IOException {
+		long length = end - begin;
+		int n = (int)Math.max(1, Math.min(threads, length / MIN_CHUNK));
+		n = (int)Math.max(n, (length + MAX_CHUNK / 2 - 1) / (MAX_CHUNK / 2));
+		long[] bounds = new long[n + 1];
+		bounds[0] = begin;
+		bounds[n] = end;
+		ByteBuffer probe = ByteBuffer.allocate(4096);
+		for(int i = 1; i < n; i++) {
+			long b = Math.max(bounds[i - 1], begin + length * i / n);
+			//advance past the next newline
+			search:
+			while(b < end) {
+				probe.clear();
+				int r = ch.read(probe, b);
+				if(r <= 0)
+					break;
+				for(int j = 0; j < r; j++)
+					if(probe.get(j) == '\n') {
+						b += j + 1;
+						break search;
+					}
+				b += r;
+			}
+			bounds[i] = Math.min(b, end);
+		}
+		return bounds;
+	}
+
+	/**
+	 * Parses the chunks in parallel and builds the NFA
+	 */
+	private NFA build(Header h, List<ByteBuffer> buffers) {
+		Alphabet alphabet = new Alphabet(h.alphabet);
+		List<Chunk> chunks = new ArrayList<>();
+		if(buffers.size() <= 1 || threads == 1) {
+			for(ByteBuffer b : buffers)
+				chunks.add(parseChunk(b, alphabet));
+		} else {
+			ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, buffers.size()));
+			try {
+				List<Future<Chunk>> futures = new ArrayList<>();
+				for(ByteBuffer b : buffers)
+					futures.add(pool.submit(() -> parseChunk(b, alphabet)));
+				for(Future<Chunk> f : futures)
+					chunks.add(f.get());
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new NFAException("Interrupted while parsing");
+			} catch(ExecutionException e) {
+				if(e.getCause() instanceof RuntimeException)
+					throw (RuntimeException)e.getCause();
+				if(e.getCause() instanceof Error)
+					throw (Error)e.getCause();
+				throw new NFAException(e.getCause().toString());
+			} finally {
+				pool.shutdown();
+			}
+		}
+
+		//merge the per-chunk arrays in file order
+		int total = 0;
+		for(Chunk c : chunks)
+			total += c.size;
+		int[] from = new int[total];
+		int[] to = new int[total];
+		int[] sym = new int[total];
+		int k = 0;
+		for(Chunk c : chunks) {
+			System.arraycopy(c.from, 0, from, k, c.size);
+			System.arraycopy(c.to, 0, to, k, c.size);
+			System.arraycopy(c.sym, 0, sym, k, c.size);
+			k += c.size;
+		}
+
+		NFA m = new NFA(h.numStates, h.alphabet, h.initial, h.accepting);
+		m.addTransitions(from, to, sym);
+		return m;
+	}
+
+	/**
+	 * Growable arrays of the transitions found in one chunk
+	 */
+	private static class Chunk {
+		int[] from = new int[1024];
+		int[] to = new int[1024];
+		int[] sym = new int[1024];
+		int size;
+
+		void add(int a, int b, int c) {
+			if(size == from.length) {
+				from = Arrays.copyOf(from, size * 2);
+				to = Arrays.copyOf(to, size * 2);
+				sym = Arrays.copyOf(sym, size * 2);
+			}
+			from[size] = a;
+			to[size] = b;
+			sym[size] = c;
+			size++;
+		}
+	}
+
+	/**
+	 * Parses lines of the form "a b c" or "a b" (an epsilon transition)
+	 */
+	private static Chunk parseChunk(ByteBuffer buf, Alphabet alphabet) {
+		Chunk chunk = new Chunk();
+		Scanner sc = new Scanner(buf, 0, buf.limit());
+		while(sc.pos < sc.end) {
+			if(!sc.skipBlanks()) {		//empty line
+				sc.nextLine();
+				continue;
+			}
+			int a = sc.nextInt();
+			sc.skipBlanks();
+			int b = sc.nextInt();
+			int c = Alphabet.EPSILON;
+			if(sc.skipBlanks()) {
+				char symbol = sc.nextChar();
+				c = alphabet.indexOf(symbol);
+				if(c == -1)
+					throw new NFAException("Symbol (" + symbol  + ") not part of the alphabet.");
+			}
+			sc.nextLine();
+			chunk.add(a, b, c);
+		}
+		return chunk;
+	}
+
+	/**
+	 * Cursor over a byte range
+	 */
+	private static class Scanner {
+		final ByteBuffer buf;
+		final int end;
+		int pos;
+
+		Scanner(ByteBuffer buf, int pos, int end) {
+			this.buf = buf;
+			this.pos = pos;
+			this.end = end;
+		}
+
+		/**
+		 * Skips spaces, tabs and carriage returns
+		 * @return true if the line continues with another token
+		 */
+		boolean skipBlanks() {
+			while(pos < end) {
+				byte b = buf.get(pos);
+				if(b != ' ' && b != '\t' && b != '\r')
+					return b != '\n';
+				pos++;
+			}
+			return false;
+		}
+
+		/**
+		 * Moves past the end of the current line
+		 */
+		void nextLine() {
+			while(pos < end && buf.get(pos++) != '\n');
+		}
+
+		/**
+		 * Returns the rest of the current line, without the line terminator
+		 */
+		String line() {
+			int begin = pos;
+			while(pos < end && buf.get(pos) != '\n')
+				pos++;
+			int stop = pos;
+			if(stop > begin && buf.get(stop - 1) == '\r')
+				stop--;
+			byte[] b = new byte[stop - begin];
+			for(int i = 0; i < b.length; i++)
+				b[i] = buf.get(begin + i);
+			nextLine();
+			return new String(b, StandardCharsets.UTF_8);
+		}
+
+		int nextInt() {
+			int start = pos;
+			long v = 0;
+			while(pos < end) {
+				int d = buf.get(pos) - '0';
+				if(d < 0 || d > 9)
+					break;
+				v = v * 10 + d;
+				if(v > Integer.MAX_VALUE)
+					throw new NFAException("Number too large at byte " + start);
+				pos++;
+			}
+			if(pos == start)
+				throw new NFAException("Expected a number at byte " + start);
+			return (int)v;
+		}
+
+		/**
+		 * Decodes one UTF-8 character
+		 */
+		char nextChar() {
+			int b0 = buf.get(pos++) & 0xff;
+			if(b0 < 0x80)
+				return (char)b0;
+			if((b0 & 0xe0) == 0xc0 && pos < end)
+				return (char)(((b0 & 0x1f) << 6) | (buf.get(pos++) & 0x3f));
+			if((b0 & 0xf0) == 0xe0 && pos + 1 < end) {
+				int b1 = buf.get(pos++) & 0x3f;
+				return (char)(((b0 & 0x0f) << 12) | (b1 << 6) | (buf.get(pos++) & 0x3f));
+			}
+			throw new NFAException("Unsupported symbol encoding at byte " + (pos - 1));
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		if(args.length == 0) {
+			System.out.println("Usage: java nfa.io.NFAParser inputFile [threads]");
+			System.exit(0);
+		}
+		NFAParser parser = args.length > 1 ? new NFAParser(Integer.parseInt(args[1])) : new NFAParser();
+		NFA m = parser.parse(new File(args[0]));
+		System.out.format("Parsed %d states, %d transitions (%.1f MB) in %d ms: %.1f MB/s\n",
+				m.numStates(), m.size(), parser.bytesRead() / (double)(1 << 20), parser.millis(),
+				parser.throughput());
+	}
+
+}
@@ -0,0 +1,97 @@
+package nfa.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Buffered UTF-8 text output to a channel
+ * Integers and characters are encoded straight into one reusable byte buffer that is written
+ * to the channel whenever it fills up, so no String is created per value.
+ * @author duncan
+ *
+ */
+public final class TextOutput {
+
+	private final WritableByteChannel out;
+	private final ByteBuffer buf;
+
+	public TextOutput(WritableByteChannel out) {
+		this(out, 1 << 16);
+	}
+
+	public TextOutput(WritableByteChannel out, int bufferSize) {
+		this.out = out;
+		buf = ByteBuffer.allocate(Math.max(bufferSize, 16));
+	}
+
+	/**
+	 * Writes an integer in decimal
+	 */
+	public TextOutput print(int v) throws IOException {
+		ensure(11);
+		if(v < 0) {
+			buf.put((byte)'-');
+			if(v == Integer.MIN_VALUE) {
+				buf.put((byte)'2');
+				v = -147483648;
+			}
+			v = -v;
+		}
+		//write the digits backwards, then reverse them in place
+		int begin = buf.position();
+		do {
+			buf.put((byte)('0' + v % 10));
+			v /= 10;
+		} while(v != 0);
+		for(int i = begin, j = buf.position() - 1; i < j; i++, j--) {
+			byte t = buf.get(i);
+			buf.put(i, buf.get(j));
+			buf.put(j, t);
+		}
+		return this;
+	}
+
+	/**
+	 * Writes a character in UTF-8
+	 */
+	public TextOutput print(char c) throws IOException {
+		ensure(3);
+		if(c < 0x80) {
+			buf.put((byte)c);
+		} else if(c < 0x800) {
+			buf.put((byte)(0xc0 | (c >> 6)));
+			buf.put((byte)(0x80 | (c & 0x3f)));
+		} else {
+			buf.put((byte)(0xe0 | (c >> 12)));
+			buf.put((byte)(0x80 | ((c >> 6) & 0x3f)));
+			buf.put((byte)(0x80 | (c & 0x3f)));
+		}
+		return this;
+	}
+
+	/**
+	 * Writes every character of a string in UTF-8
+	 */
+	public TextOutput print(String s) throws IOException {
+		for(int i = 0; i < s.length(); i++)
+			print(s.charAt(i));
+		return this;
+	}
+
+	private void ensure(int bytes) throws IOException {
+		if(buf.remaining() < bytes)
+			flush();
+	}
+
+	/**
+	 * Writes the buffered bytes to the channel
+	 */
+	public void flush() throws IOException {
+		buf.flip();
+		while(buf.hasRemaining())
+			out.write(buf);
+		buf.clear();
+	}
+
+}
@@ -9,7 +9,8 @@ public class NFAToDot {
 
 	public static void main(String[] args) throws IOException {
 		NFA M = new NFA(new File(args[0]));
-		System.out.println(M.toDot());
+		M.writeDot(System.out);
+		System.out.println();
 	}
 	
 }
@@ -0,0 +1,49 @@
+package utils;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe version of TriangularBitMatrix
+ * Entries are set with compare-and-set on the word holding the bit, so when several threads
+ * set the same entry exactly one of them sees set() return true.
+ * @author Duncan
+ *
+ */
+public class AtomicTriangularBitMatrix implements PairTable {
+
+	private final int n;
+	private final AtomicLongArray bits;
+
+	/**
+	 * Creates an n by n matrix with every entry false
+	 */
+	public AtomicTriangularBitMatrix(int n) {
+		this.n = n;
+		bits = new AtomicLongArray(TriangularBitMatrix.words(n));
+	}
+
+	public boolean get(int i, int j) {
+		if(i == j)
+			return false;
+		long b = TriangularBitMatrix.index(i, j);
+		return (bits.get((int)(b >>> 6)) & (1L << b)) != 0;
+	}
+
+	public boolean set(int i, int j) {
+		if(i == j)
+			throw new IllegalArgumentException("Cannot set the diagonal entry " + i);
+		long b = TriangularBitMatrix.index(i, j);
+		int w = (int)(b >>> 6);
+		long mask = 1L << b;
+		while(true) {
+			long old = bits.get(w);
+			if((old & mask) != 0)
+				return false;
+			if(bits.compareAndSet(w, old, old | mask))
+				return true;
+		}
+	}
+
+	public int size() { return n; }
+
+}
@@ -0,0 +1,13 @@
+package utils;
+
+/**
+ * An operation that accepts three int arguments, used to visit transitions
+ * (from, to, symbol index) without allocating an object per transition
+ * @author Duncan
+ *
+ */
+public interface IntIntIntConsumer {
+
+	public void accept(int a, int b, int c);
+
+}
@@ -0,0 +1,143 @@
+package utils;
+
+import java.util.AbstractSet;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Set of non-negative integers backed by a BitSet
+ * The int overloads of contains, add and remove do not box; the Set&lt;Integer&gt; methods
+ * are kept so that the set can still be used as a collection.
+ * Elements can be iterated without boxing with next():
+ * for(int v = set.next(0); v != -1; v = set.next(v + 1))
+ * @author Duncan
+ *
+ */
+public class IntSet extends AbstractSet<Integer> {
+
+	private final BitSet bits;
+	private int size;
+
+	/**
+	 * Creates an empty set
+	 */
+	public IntSet() {
+		bits = new BitSet();
+	}
+
+	/**
+	 * Creates an empty set that can hold 0 ... capacity - 1 without resizing
+	 */
+	public IntSet(int capacity) {
+		bits = new BitSet(capacity);
+	}
+
+	/**
+	 * Creates a set holding the elements of c
+	 */
+	public IntSet(Collection<Integer> c) {
+		if(c instanceof IntSet) {
+			IntSet s = (IntSet)c;
+			bits = (BitSet)s.bits.clone();
+			size = s.size;
+		} else {
+			bits = new BitSet();
+			for(int v : c)
+				add(v);
+		}
+	}
+
+	public boolean contains(int v) {
+		return v >= 0 && bits.get(v);
+	}
+
+	public boolean add(int v) {
+		if(bits.get(v))
+			return false;
+		bits.set(v);
+		size++;
+		return true;
+	}
+
+	public boolean remove(int v) {
+		if(!contains(v))
+			return false;
+		bits.clear(v);
+		size--;
+		return true;
+	}
+
+	/**
+	 * Returns the smallest element that is at least v, or -1 if there is none
+	 */
+	public int next(int v) {
+		return bits.nextSetBit(v);
+	}
+
+	/**
+	 * Renames every element v to map[v] in place, dropping v if map[v] == -1
+	 * map must be non-decreasing on the elements and satisfy map[v] <= v, as the maps
+	 * returned by relabel() do.
+	 */
+	public void relabel(int[] map) {
+		//ascending order never revisits a bit set by an earlier element since map[v] <= v
+		for(int v = bits.nextSetBit(0); v != -1; v = bits.nextSetBit(v + 1)) {
+			int w = map[v];
+			if(w == v)
+				continue;
+			bits.clear(v);
+			if(w == -1)
+				size--;
+			else
+				bits.set(w);
+		}
+	}
+
+	public int size() { return size; }
+
+	public void clear() {
+		bits.clear();
+		size = 0;
+	}
+
+	public boolean contains(Object o) {
+		return o instanceof Integer && contains(((Integer)o).intValue());
+	}
+
+	public boolean add(Integer v) {
+		return add(v.intValue());
+	}
+
+	public boolean remove(Object o) {
+		return o instanceof Integer && remove(((Integer)o).intValue());
+	}
+
+	public Iterator<Integer> iterator() {
+		return new Iterator<Integer>() {
+			int next = bits.nextSetBit(0);
+			int last = -1;
+
+			public boolean hasNext() {
+				return next != -1;
+			}
+
+			public Integer next() {
+				if(next == -1)
+					throw new NoSuchElementException();
+				last = next;
+				next = bits.nextSetBit(next + 1);
+				return last;
+			}
+
+			public void remove() {
+				if(last == -1)
+					throw new IllegalStateException();
+				IntSet.this.remove(last);
+				last = -1;
+			}
+		};
+	}
+
+}
@@ -0,0 +1,40 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * A range of a shared long array, compared and hashed by its contents
+ * Used as a hash key for a sequence of keys without copying it out of the array; the
+ * array must not change while the range is in use.
+ * @author Duncan
+ *
+ */
+public class LongRange {
+
+	private final long[] keys;
+	private final int from, to;
+	private final int hash;
+
+	/**
+	 * The range keys[from] ... keys[to - 1]
+	 */
+	public LongRange(long[] keys, int from, int to) {
+		this.keys = keys;
+		this.from = from;
+		this.to = to;
+		int h = 1;
+		for(int i = from; i < to; i++)
+			h = 31 * h + Long.hashCode(keys[i]);
+		hash = h;
+	}
+
+	public boolean equals(Object obj) {
+		if(!(obj instanceof LongRange))
+			return false;
+		LongRange other = (LongRange)obj;
+		return hash == other.hash && Arrays.equals(keys, from, to, other.keys, other.from, other.to);
+	}
+
+	public int hashCode() { return hash; }
+
+}
@@ -0,0 +1,108 @@
+package utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * TriangularBitMatrix stored outside the Java heap
+ * The bits are kept in direct buffers, or in buffers mapped from a scratch file so that the
+ * operating system can page them out, split into chunks of 1 GB since a buffer is indexed
+ * by an int. The scratch file is deleted as soon as it is mapped and its space is returned
+ * once the matrix is garbage collected.
+ * If the matrix is atomic, entries are set with compare-and-set as in AtomicTriangularBitMatrix.
+ * @author Duncan
+ *
+ */
+public class OffHeapTriangularBitMatrix implements PairTable {
+
+	private static final int CHUNK_SHIFT = 30;
+	private static final long CHUNK = 1L << CHUNK_SHIFT;
+	private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+	private final int n;
+	private final ByteBuffer[] chunks;
+	private final boolean atomic;
+
+	/**
+	 * Creates an n by n matrix with every entry false
+	 * @param dir directory of the scratch file, or null to use direct buffers
+	 * @param atomic true if several threads may set entries at once
+	 */
+	public OffHeapTriangularBitMatrix(int n, File dir, boolean atomic) {
+		this.n = n;
+		this.atomic = atomic;
+		long bytes = Math.max(8, bytes(n));
+		chunks = new ByteBuffer[(int)((bytes + CHUNK - 1) >>> CHUNK_SHIFT)];
+		try {
+			if(dir == null) {
+				for(int c = 0; c < chunks.length; c++)
+					chunks[c] = ByteBuffer.allocateDirect((int)Math.min(CHUNK, bytes - c * CHUNK));
+			} else {
+				File file = File.createTempFile("pairs", ".bits", dir);
+				try(FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+					for(int c = 0; c < chunks.length; c++)
+						chunks[c] = ch.map(FileChannel.MapMode.READ_WRITE, c * CHUNK, Math.min(CHUNK, bytes - c * CHUNK));
+				} finally {
+					file.delete();
+				}
+			}
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		for(ByteBuffer b : chunks)
+			b.order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * Number of bytes taken by a matrix with n rows
+	 */
+	public static long bytes(int n) {
+		long pairs = (long)n * (n - 1) / 2;
+		return ((pairs + 63) >>> 6) << 3;
+	}
+
+	public boolean get(int i, int j) {
+		if(i == j)
+			return false;
+		long b = TriangularBitMatrix.index(i, j);
+		long offset = (b >>> 6) << 3;
+		ByteBuffer chunk = chunks[(int)(offset >>> CHUNK_SHIFT)];
+		int pos = (int)(offset & (CHUNK - 1));
+		long word = atomic ? (long)LONGS.getVolatile(chunk, pos) : chunk.getLong(pos);
+		return (word & (1L << b)) != 0;
+	}
+
+	public boolean set(int i, int j) {
+		if(i == j)
+			throw new IllegalArgumentException("Cannot set the diagonal entry " + i);
+		long b = TriangularBitMatrix.index(i, j);
+		long offset = (b >>> 6) << 3;
+		ByteBuffer chunk = chunks[(int)(offset >>> CHUNK_SHIFT)];
+		int pos = (int)(offset & (CHUNK - 1));
+		long mask = 1L << b;
+		if(!atomic) {
+			long old = chunk.getLong(pos);
+			if((old & mask) != 0)
+				return false;
+			chunk.putLong(pos, old | mask);
+			return true;
+		}
+		while(true) {
+			long old = (long)LONGS.getVolatile(chunk, pos);
+			if((old & mask) != 0)
+				return false;
+			if(LONGS.compareAndSet(chunk, pos, old, old | mask))
+				return true;
+		}
+	}
+
+	public int size() { return n; }
+
+}
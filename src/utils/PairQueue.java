@@ -0,0 +1,81 @@
+package utils;
+
+/**
+ * FIFO queue of int pairs in a growable ring buffer of longs
+ * Each pair is packed as p << 32 | q, so queued pairs are never boxed:
+ * while(!Q.isEmpty()) { long pair = Q.poll(); int p = PairQueue.first(pair), q = PairQueue.second(pair); ... }
+ * @author Duncan
+ *
+ */
+public class PairQueue {
+
+	private long[] ring;
+	private int head;		//index of the first pair
+	private int size;
+
+	public PairQueue() {
+		this(16);
+	}
+
+	/**
+	 * Creates a queue that holds capacity pairs before growing
+	 */
+	public PairQueue(int capacity) {
+		ring = new long[Math.max(capacity, 1)];
+	}
+
+	public void add(int p, int q) {
+		add(pack(p, q));
+	}
+
+	/**
+	 * Adds a pair in packed form
+	 */
+	public void add(long pair) {
+		if(size == ring.length) {
+			long[] grown = new long[ring.length * 2];
+			for(int i = 0; i < size; i++)
+				grown[i] = ring[(head + i) % ring.length];
+			ring = grown;
+			head = 0;
+		}
+		int tail = head + size;
+		if(tail >= ring.length)
+			tail -= ring.length;
+		ring[tail] = pair;
+		size++;
+	}
+
+	/**
+	 * Removes and returns the first pair in packed form
+	 */
+	public long poll() {
+		if(size == 0)
+			throw new IllegalStateException("Queue is empty");
+		long pair = ring[head];
+		if(++head == ring.length)
+			head = 0;
+		size--;
+		return pair;
+	}
+
+	/**
+	 * Packs the pair (p, q) into a long
+	 */
+	public static long pack(int p, int q) { return ((long)p << 32) | (q & 0xffffffffL); }
+
+	/**
+	 * First element of a packed pair
+	 */
+	public static int first(long pair) { return (int)(pair >>> 32); }
+
+	/**
+	 * Second element of a packed pair
+	 */
+	public static int second(long pair) { return (int)pair; }
+
+	public boolean isEmpty() { return size == 0; }
+
+	public int size() { return size; }
+
+}
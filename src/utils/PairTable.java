@@ -0,0 +1,26 @@
+package utils;
+
+/**
+ * Symmetric boolean relation on 0 ... n - 1 whose entries are only ever set to true
+ * @author Duncan
+ *
+ */
+public interface PairTable {
+
+	/**
+	 * Returns entry (i, j), which is the same as entry (j, i)
+	 */
+	public boolean get(int i, int j);
+
+	/**
+	 * Sets entries (i, j) and (j, i) to true
+	 * @return true if the entry was false before
+	 */
+	public boolean set(int i, int j);
+
+	/**
+	 * The number of rows (and columns)
+	 */
+	public int size();
+
+}
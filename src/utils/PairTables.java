@@ -0,0 +1,64 @@
+package utils;
+
+import java.io.File;
+
+/**
+ * Allocates pair tables within a heap budget
+ * Tables are kept on the heap while their total size fits in the budget and moved off the
+ * heap (see OffHeapTriangularBitMatrix) once it does not.
+ * @author Duncan
+ *
+ */
+public class PairTables {
+
+	/**
+	 * Bytes of heap that tables may take unless a budget is given
+	 */
+	public static long defaultHeapBudget = Runtime.getRuntime().maxMemory() / 4;
+
+	/**
+	 * Directory of the scratch files of off-heap tables unless one is given, null to use
+	 * direct buffers
+	 */
+	public static File defaultScratchDir = new File(System.getProperty("java.io.tmpdir"));
+
+	private final long heapBudget;
+	private final File scratchDir;
+	private final boolean atomic;
+	private long used;			//bytes of heap taken by tables so far
+	private boolean offHeap;	//true once a table was put off the heap
+
+	public PairTables() {
+		this(defaultHeapBudget, defaultScratchDir, false);
+	}
+
+	/**
+	 * @param heapBudget bytes of heap that the tables may take
+	 * @param scratchDir directory of the scratch files of off-heap tables, null to use direct buffers
+	 * @param atomic true if several threads may set entries at once
+	 */
+	public PairTables(long heapBudget, File scratchDir, boolean atomic) {
+		this.heapBudget = heapBudget;
+		this.scratchDir = scratchDir;
+		this.atomic = atomic;
+	}
+
+	/**
+	 * Creates an n by n table with every entry false
+	 */
+	public PairTable create(int n) {
+		long bytes = OffHeapTriangularBitMatrix.bytes(n);
+		if(used + bytes <= heapBudget && bytes / 8 <= Integer.MAX_VALUE - 8) {
+			used += bytes;
+			return atomic ? new AtomicTriangularBitMatrix(n) : new TriangularBitMatrix(n);
+		}
+		offHeap = true;
+		return new OffHeapTriangularBitMatrix(n, scratchDir, atomic);
+	}
+
+	/**
+	 * Checks if any of the tables created is off the heap
+	 */
+	public boolean offHeap() { return offHeap; }
+
+}
@@ -0,0 +1,137 @@
+package utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Works through a queue of pairs with several threads until no thread produces new pairs
+ * Each thread works through its own queue, sharing chunks of it while other threads may be
+ * idle, and takes shared chunks when it runs out. The step is given the pairs of a thread in
+ * batches, so that it can order the work of a whole batch. If a step throws, the other threads
+ * stop at their next batch and the first exception is rethrown by run.
+ * @author Duncan
+ *
+ */
+public class PairWorklist {
+
+	/**
+	 * Processes pairs[0] ... pairs[count - 1], adding the pairs it produces to the queue
+	 */
+	public interface Step {
+		public void apply(PairQueue Q, long[] pairs, int count);
+	}
+
+	private final int threads;
+	private final int chunk;		//pairs handed between threads at a time
+	private final int batch;		//pairs given to the step at a time
+	private final Step step;
+	private final ConcurrentLinkedQueue<long[]> shared = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger active;
+	private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+	private PairWorklist(int threads, int chunk, int batch, Step step) {
+		this.threads = threads;
+		this.chunk = chunk;
+		this.batch = batch;
+		this.step = step;
+		active = new AtomicInteger(threads);
+	}
+
+	/**
+	 * Applies the step to the seeds and to every pair produced, on the calling thread and
+	 * threads - 1 others
+	 * @param chunk the number of pairs handed between threads at a time
+	 * @param batch the largest number of pairs given to the step at a time
+	 */
+	public static void run(PairQueue seeds, int threads, int chunk, int batch, Step step) {
+		PairWorklist w = new PairWorklist(Math.max(1, threads), chunk, Math.max(1, batch), step);
+		while(!seeds.isEmpty())
+			w.shared.add(take(seeds, chunk));
+		w.run();
+	}
+
+	private void run() {
+		ExecutorService pool = threads > 1 ? Executors.newFixedThreadPool(threads - 1) : null;
+		try {
+			List<CompletableFuture<Void>> helpers = new ArrayList<>();
+			for(int t = 1; t < threads; t++)
+				helpers.add(CompletableFuture.runAsync(this::drain, pool));
+			drain();
+			for(CompletableFuture<Void> f : helpers)
+				f.join();		//drain never throws, failures are kept in failure
+		} finally {
+			if(pool != null)
+				pool.shutdownNow();
+		}
+		Throwable e = failure.get();
+		if(e instanceof RuntimeException)
+			throw (RuntimeException)e;
+		if(e instanceof Error)
+			throw (Error)e;
+	}
+
+	/**
+	 * Processes pairs until every thread is out of work or some thread failed
+	 * A thread only counts as inactive with an empty queue after finding no shared chunk,
+	 * so once no thread is active there is no work left anywhere. A failed thread stays
+	 * active, so the others leave through the failure check instead of waiting for it.
+	 */
+	private void drain() {
+		try {
+			PairQueue Q = new PairQueue(2 * chunk);
+			long[] pairs = new long[batch];
+			while(true) {
+				while(!Q.isEmpty()) {
+					if(failure.get() != null)
+						return;
+					int count = Math.min(batch, Q.size());
+					for(int i = 0; i < count; i++)
+						pairs[i] = Q.poll();
+					step.apply(Q, pairs, count);
+					if(Q.size() >= 2 * chunk && shared.isEmpty())
+						shared.add(take(Q, chunk));
+				}
+				long[] taken = shared.poll();
+				if(taken == null) {
+					//wait for a shared chunk or for every thread to run out of work
+					active.decrementAndGet();
+					while(taken == null) {
+						if(failure.get() != null)
+							return;
+						if(shared.isEmpty()) {
+							if(active.get() == 0)
+								return;
+							Thread.yield();
+						} else {
+							active.incrementAndGet();
+							taken = shared.poll();
+							if(taken == null)
+								active.decrementAndGet();
+						}
+					}
+				}
+				for(long pair : taken)
+					Q.add(pair);
+			}
+		} catch(Throwable e) {
+			failure.compareAndSet(null, e);
+		}
+	}
+
+	/**
+	 * Removes up to n pairs from a queue
+	 */
+	private static long[] take(PairQueue Q, int n) {
+		long[] pairs = new long[Math.min(n, Q.size())];
+		for(int i = 0; i < pairs.length; i++)
+			pairs[i] = Q.poll();
+		return pairs;
+	}
+
+}
@@ -0,0 +1,95 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * Growable batch of entries of a pair table, each with two longs of data, visited in the
+ * order of their rows
+ * Collecting the entries a batch of work reads and writes before touching the table, and then
+ * visiting them row by row, walks a table that is paged in from disk sequentially instead of
+ * at random.
+ * @author Duncan
+ *
+ */
+public class RowBatch {
+
+	private int[] rows = new int[16];
+	private long[] first = new long[16];
+	private long[] second = new long[16];
+	private int size;
+	private int maxRow = -1;
+	private int[] order = new int[0];		//positions of the entries in row order once sorted
+	private int[] count = new int[0];
+	private boolean sorted;
+
+	/**
+	 * Adds an entry in the given row of the table
+	 */
+	public void add(int row, long a, long b) {
+		if(size == rows.length) {
+			rows = Arrays.copyOf(rows, 2 * size);
+			first = Arrays.copyOf(first, 2 * size);
+			second = Arrays.copyOf(second, 2 * size);
+		}
+		rows[size] = row;
+		first[size] = a;
+		second[size] = b;
+		size++;
+		maxRow = Math.max(maxRow, row);
+		sorted = false;
+	}
+
+	/**
+	 * Orders the entries by row, entries in the same row in the order they were added
+	 * Counts the entries of each row when there are fewer rows than entries, and otherwise
+	 * sorts them.
+	 */
+	public void sort() {
+		if(order.length < size)
+			order = new int[rows.length];
+		if(maxRow < size) {
+			if(count.length <= maxRow + 1)
+				count = new int[Math.max(2 * count.length, maxRow + 2)];
+			Arrays.fill(count, 0, maxRow + 2, 0);
+			for(int i = 0; i < size; i++)
+				count[rows[i] + 1]++;
+			for(int r = 0; r <= maxRow; r++)
+				count[r + 1] += count[r];
+			for(int i = 0; i < size; i++)
+				order[count[rows[i]]++] = i;
+		} else {
+			long[] keys = new long[size];		//row << 32 | position of the entry
+			for(int i = 0; i < size; i++)
+				keys[i] = ((long)rows[i] << 32) | i;
+			Arrays.sort(keys);
+			for(int i = 0; i < size; i++)
+				order[i] = (int)keys[i];
+		}
+		sorted = true;
+	}
+
+	/**
+	 * First long of the i-th entry in row order
+	 */
+	public long first(int i) { return first[position(i)]; }
+
+	/**
+	 * Second long of the i-th entry in row order
+	 */
+	public long second(int i) { return second[position(i)]; }
+
+	private int position(int i) {
+		if(!sorted)
+			throw new IllegalStateException("Batch is not sorted");
+		return order[i];
+	}
+
+	public int size() { return size; }
+
+	public void clear() {
+		size = 0;
+		maxRow = -1;
+		sorted = false;
+	}
+
+}
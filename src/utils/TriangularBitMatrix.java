@@ -0,0 +1,87 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * Symmetric boolean relation on 0 ... n - 1 stored as a packed triangular bitset
+ * Only the pairs i < j are stored, one bit each at index j * (j - 1) / 2 + i, so the
+ * matrix takes n * (n - 1) / 2 bits instead of the n * n bytes of a boolean[][].
+ * The diagonal is always false.
+ * @author Duncan
+ *
+ */
+public class TriangularBitMatrix implements PairTable {
+
+	private final int n;
+	private final long[] bits;
+
+	/**
+	 * Creates an n by n matrix with every entry false
+	 */
+	public TriangularBitMatrix(int n) {
+		this.n = n;
+		bits = new long[words(n)];
+	}
+
+	/**
+	 * Number of longs needed to hold the pairs of n elements
+	 */
+	static int words(int n) {
+		long pairs = (long)n * (n - 1) / 2;
+		long words = (pairs + 63) >>> 6;
+		if(words > Integer.MAX_VALUE - 8)
+			throw new IllegalArgumentException("Too many pairs for " + n + " elements");
+		return (int)words;
+	}
+
+	/**
+	 * Bit index of the pair (i, j)
+	 */
+	static long index(int i, int j) {
+		if(i > j) {
+			int t = i;
+			i = j;
+			j = t;
+		}
+		return (long)j * (j - 1) / 2 + i;
+	}
+
+	public boolean get(int i, int j) {
+		if(i == j)
+			return false;
+		long b = index(i, j);
+		return (bits[(int)(b >>> 6)] & (1L << b)) != 0;
+	}
+
+	public boolean set(int i, int j) {
+		if(i == j)
+			throw new IllegalArgumentException("Cannot set the diagonal entry " + i);
+		long b = index(i, j);
+		int w = (int)(b >>> 6);
+		long mask = 1L << b;
+		if((bits[w] & mask) != 0)
+			return false;
+		bits[w] |= mask;
+		return true;
+	}
+
+	/**
+	 * Sets every entry off the diagonal to true
+	 */
+	public void fill() {
+		Arrays.fill(bits, -1L);
+	}
+
+	/**
+	 * Sets entries (i, j) and (j, i) to false
+	 */
+	public void clear(int i, int j) {
+		if(i == j)
+			return;
+		long b = index(i, j);
+		bits[(int)(b >>> 6)] &= ~(1L << b);
+	}
+
+	public int size() { return n; }
+
+}
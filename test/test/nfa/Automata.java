@@ -0,0 +1,141 @@
+package test.nfa;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import nfa.Alphabet;
+import nfa.CompactNFA;
+import nfa.NFA;
+import nfa.generators.AbstractNFAGenerator;
+import nfa.generators.PartitionMethod;
+import nfa.generators.RegexMethod;
+import nfa.generators.SpanningTreeMethod;
+import utils.DisjointSets;
+
+/**
+ * Sample automata and assertions shared by the tests
+ * @author duncan
+ *
+ */
+public class Automata {
+
+	/**
+	 * Automata with epsilon transitions, several initial and final states, an empty language,
+	 * a state that only accepts the empty string, and generated ones of a few sizes
+	 * Built with NFA.defaultGraphType; copy them before changing them.
+	 */
+	public static List<NFA> samples() {
+		List<NFA> samples = new ArrayList<>();
+		samples.add(new NFA("(a|b)*abb(a|b)*", "ab"));
+		samples.add(new NFA("(ab|a)*(ba|b)*|", "ab"));
+		//several initial and final states, with epsilon transitions between the components
+		samples.add(parse("8\nab\n0 3 6\n2 5 7\n0 1 a\n1 2 b\n1 1 a\n3 4 a\n4 5 b\n4 4 a\n2 3\n5 0\n6 7 b\n7 6\n"));
+		//no final state is reachable
+		samples.add(parse("5\nab\n0\n4\n0 1 a\n1 0 b\n1 2 a\n2 2 b\n3 4 a\n"));
+		//state 0 has no transitions and only accepts the empty string
+		samples.add(parse("4\nab\n0 1\n0 3\n1 2 a\n2 3 b\n3 1 a\n2 2 b\n"));
+		AbstractNFAGenerator[] generators = { new RegexMethod(), new SpanningTreeMethod(), new PartitionMethod() };
+		for(AbstractNFAGenerator gen : generators)
+			for(int i = 0; i < 3; i++)
+				samples.add(gen.generate(20 + 25 * i, 0.05, i % 2 == 0 ? "ab" : "actg"));
+		return samples;
+	}
+
+	/**
+	 * Reads an automaton in the text format of NFA(Reader)
+	 */
+	public static NFA parse(String text) {
+		try {
+			return new NFA(new StringReader(text));
+		} catch(IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public static void assertSameClasses(DisjointSets expected, DisjointSets actual) {
+		assertEquals(expected.count(), actual.count());
+		for(int i = 0; i < expected.size(); i++)
+			for(int j = i + 1; j < expected.size(); j++)
+				assertEquals(expected.connected(i, j), actual.connected(i, j));
+	}
+
+	/**
+	 * Checks that two automata accept the same strings by a subset construction of both
+	 * Fails with the shortest string accepted by only one of them.
+	 */
+	public static void assertSameLanguage(NFA expected, NFA actual) {
+		CompactNFA a = expected.snapshot();
+		CompactNFA b = actual.snapshot();
+		String symbols = a.alphabet().toString() + b.alphabet().toString();
+		Set<List<BitSet>> seen = new HashSet<>();
+		ArrayDeque<List<BitSet>> queue = new ArrayDeque<>();
+		ArrayDeque<String> words = new ArrayDeque<>();
+		List<BitSet> start = List.of(closure(a, initial(a)), closure(b, initial(b)));
+		seen.add(start);
+		queue.add(start);
+		words.add("");
+		while(!queue.isEmpty()) {
+			List<BitSet> pair = queue.poll();
+			String word = words.poll();
+			assertEquals("accepts \"" + word + "\"", accepting(a, pair.get(0)), accepting(b, pair.get(1)));
+			for(char c : symbols.toCharArray()) {
+				List<BitSet> next = List.of(closure(a, step(a, pair.get(0), c)), closure(b, step(b, pair.get(1), c)));
+				if(seen.add(next)) {
+					queue.add(next);
+					words.add(word + c);
+				}
+			}
+		}
+	}
+
+	private static BitSet initial(CompactNFA c) {
+		BitSet set = new BitSet();
+		for(int q = 0; q < c.numStates(); q++)
+			if(c.isInitial(q))
+				set.set(q);
+		return set;
+	}
+
+	private static boolean accepting(CompactNFA c, BitSet set) {
+		for(int q = set.nextSetBit(0); q >= 0; q = set.nextSetBit(q + 1))
+			if(c.isFinal(q))
+				return true;
+		return false;
+	}
+
+	private static BitSet step(CompactNFA c, BitSet set, char symbol) {
+		BitSet next = new BitSet();
+		int k = c.alphabet().indexOf(symbol);
+		if(k <= Alphabet.EPSILON)
+			return next;
+		for(int p = set.nextSetBit(0); p >= 0; p = set.nextSetBit(p + 1))
+			for(int i = c.outBegin(p, k); i < c.outEnd(p, k); i++)
+				next.set(c.outTarget(i));
+		return next;
+	}
+
+	private static BitSet closure(CompactNFA c, BitSet set) {
+		ArrayDeque<Integer> stack = new ArrayDeque<>();
+		for(int q = set.nextSetBit(0); q >= 0; q = set.nextSetBit(q + 1))
+			stack.push(q);
+		while(!stack.isEmpty()) {
+			int p = stack.pop();
+			for(int i = c.outBegin(p, Alphabet.EPSILON); i < c.outEnd(p, Alphabet.EPSILON); i++)
+				if(!set.get(c.outTarget(i))) {
+					set.set(c.outTarget(i));
+					stack.push(c.outTarget(i));
+				}
+		}
+		return set;
+	}
+
+}
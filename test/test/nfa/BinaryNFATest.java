@@ -0,0 +1,118 @@
+package test.nfa;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import nfa.DFA;
+import nfa.NFA;
+import nfa.NFAException;
+import nfa.Transition;
+import nfa.generators.AbstractNFAGenerator;
+import nfa.generators.RandomDFA;
+import nfa.generators.SpanningTreeMethod;
+import nfa.io.BinaryNFA;
+import nfa.io.MappedNFA;
+
+import org.junit.Test;
+
+public class BinaryNFATest {
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		AbstractNFAGenerator gen = new SpanningTreeMethod();
+		NFA m = gen.generate(100, 0.1, "actg");
+		m.addTransition(5, 7, NFA.EPSILON);
+		File file = File.createTempFile("nfa", ".nfab");
+		try {
+			BinaryNFA.write(m, file);
+			assertTrue(BinaryNFA.isBinary(file));
+			MappedNFA mapped = new MappedNFA(file);
+			assertEquals(m.numStates(), mapped.numStates());
+			assertEquals(m.size(), mapped.size());
+			assertEquals(m.alphabet(), mapped.alphabet().toString());
+			for(int p = 0; p < m.numStates(); p++) {
+				assertEquals(m.isInitial(p), mapped.isInitial(p));
+				assertEquals(m.isFinal(p), mapped.isFinal(p));
+				assertEquals(m.outdegree(p), mapped.transitionsFrom(p).size());
+				assertEquals(m.indegree(p), mapped.transitionsTo(p).size());
+				for(Transition t : mapped.transitionsFrom(p))
+					assertTrue(m.transitionsFrom(p).contains(t));
+				for(Transition t : mapped.transitionsTo(p))
+					assertTrue(m.transitionsTo(p).contains(t));
+			}
+
+			NFA copy = BinaryNFA.read(file);
+			assertEquals(m.initialStates(), copy.initialStates());
+			assertEquals(m.finalStates(), copy.finalStates());
+			m.forEachTransition((u, v, c) -> assertTrue(copy.hasTransition(u, v, c)));
+			assertEquals(m.size(), copy.size());
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testDFA() throws IOException {
+		DFA a = RandomDFA.generate(30, "ab");
+		File file = File.createTempFile("dfa", ".nfab");
+		try {
+			BinaryNFA.write(a, file);
+			DFA b = new MappedNFA(file).toDFA();
+			assertEquals(a.initialState(), b.initialState());
+			assertEquals(a.size(), b.size());
+			assertEquals(a.finalStates(), b.finalStates());
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testTruncated() throws IOException {
+		NFA m = new SpanningTreeMethod().generate(20, 0.1, "ab");
+		File file = File.createTempFile("nfa", ".nfab");
+		try {
+			BinaryNFA.write(m, file);
+			long length = file.length();
+			//the last section is padded to 8 bytes, so cutting 8 bytes always cuts into it
+			for(long cut = length - 8; cut >= 0; cut -= 7) {
+				try(RandomAccessFile f = new RandomAccessFile(file, "rw")) {
+					f.setLength(cut);
+				}
+				try {
+					new MappedNFA(file);
+					fail("A file cut to " + cut + " of " + length + " bytes was mapped");
+				} catch(NFAException e) {
+				}
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testNegativeCount() throws IOException {
+		NFA m = new SpanningTreeMethod().generate(20, 0.1, "ab");
+		File file = File.createTempFile("nfa", ".nfab");
+		try {
+			BinaryNFA.write(m, file);
+			for(int field = 8; field <= 16; field += 4) {
+				BinaryNFA.write(m, file);
+				try(RandomAccessFile f = new RandomAccessFile(file, "rw")) {
+					f.seek(field);
+					f.writeInt(-1);		//the same in either byte order
+				}
+				try {
+					new MappedNFA(file);
+					fail("A negative count at byte " + field + " was accepted");
+				} catch(NFAException e) {
+				}
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+}
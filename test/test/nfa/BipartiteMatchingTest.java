@@ -0,0 +1,123 @@
+package test.nfa;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import graph.BipartiteMatching;
+import graph.Edge;
+import graph.UndirectedGraph;
+
+import org.junit.Test;
+
+public class BipartiteMatchingTest {
+
+	/**
+	 * Maximum matching by one augmenting path search per vertex of L
+	 */
+	private static int simpleMatching(int order, int n, int[] start, int[] adj) {
+		int[] match = new int[order];
+		int size = 0;
+		for(int u = 1; u < n; u++)
+			if(augment(u, new boolean[order], match, start, adj))
+				size++;
+		return size;
+	}
+
+	private static boolean augment(int u, boolean[] visited, int[] match, int[] start, int[] adj) {
+		for(int i = start[u]; i < start[u + 1]; i++) {
+			int v = adj[i];
+			if(visited[v])
+				continue;
+			visited[v] = true;
+			if(match[v] == 0 || augment(match[v], visited, match, start, adj)) {
+				match[v] = u;
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void assertValid(BipartiteMatching matching, int order, int n, int[] start, int[] adj) {
+		int matched = 0;
+		for(int u = 1; u < n; u++) {
+			if(!matching.isMatched(u))
+				continue;
+			int v = matching.getMatch(u);
+			assertEquals(u, matching.getMatch(v));
+			boolean edge = false;
+			for(int i = start[u]; i < start[u + 1]; i++)
+				edge |= adj[i] == v;
+			assertTrue(edge);
+			matched++;
+		}
+		assertEquals(matched, matching.size());
+	}
+
+	@Test
+	public void testRandom() {
+		Random random = new Random(21);
+		for(int t = 0; t < 50; t++) {
+			int left = 1 + random.nextInt(40);
+			int right = 1 + random.nextInt(40);
+			int n = left + 1;
+			int order = left + right + 1;
+			int[] start = new int[n + 1];
+			int[] adj = new int[left * right];
+			UndirectedGraph<Edge> G = new UndirectedGraph<>(order);
+			double p = random.nextDouble() * 0.2;
+			for(int u = 1; u < n; u++) {
+				start[u + 1] = start[u];
+				for(int v = n; v < order; v++)
+					if(random.nextDouble() < p) {
+						adj[start[u + 1]++] = v;
+						G.addEdge(new Edge(u, v));
+					}
+			}
+			int expected = simpleMatching(order, n, start, adj);
+			BipartiteMatching csr = new BipartiteMatching(order, n, start, adj);
+			assertEquals(expected, csr.size());
+			assertValid(csr, order, n, start, adj);
+			assertEquals(expected, new BipartiteMatching(G, n).size());
+			assertMinimumCover(csr, order, n, start, adj);
+		}
+	}
+	
+	/**
+	 * Checks that the cover touches every edge and has as many vertices as the matching has edges
+	 */
+	private static void assertMinimumCover(BipartiteMatching matching, int order, int n, int[] start, int[] adj) {
+		boolean[] cover = matching.minimumVertexCover();
+		int size = 0;
+		for(int v = 1; v < order; v++)
+			if(cover[v])
+				size++;
+		assertEquals(matching.size(), size);
+		for(int u = 1; u < n; u++)
+			for(int i = start[u]; i < start[u + 1]; i++)
+				assertTrue(cover[u] || cover[adj[i]]);
+	}
+	
+	@Test
+	public void testLongPath() {
+		//the warm start matches l_i to r_(i + 1), leaving one augmenting path through every vertex
+		int k = 200000;
+		int n = k + 1;
+		int order = 2 * k + 1;
+		int[] start = new int[n + 1];
+		int[] adj = new int[2 * k];
+		for(int i = 1; i <= k; i++) {
+			start[i + 1] = start[i];
+			if(i < k)
+				adj[start[i + 1]++] = n + i;		//r_(i + 1)
+			adj[start[i + 1]++] = n + i - 1;		//r_i
+		}
+		BipartiteMatching matching = new BipartiteMatching(order, n, start, adj);
+		assertEquals(k, matching.size());
+		assertEquals(k - 1, matching.warmStart());
+		assertEquals(1, matching.phases());
+		assertEquals(1, matching.augmentations(0));
+		assertEquals(k, matching.layers(0));
+	}
+
+}
@@ -0,0 +1,50 @@
+package test.nfa;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import nfa.NFA;
+import nfa.NFA.GraphType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+/**
+ * Runs the tests of a subclass once for every graph implementation of NFA
+ * The automata built by the tests use the implementation through NFA.defaultGraphType.
+ * @author duncan
+ *
+ */
+@RunWith(Parameterized.class)
+public abstract class BothGraphTypes {
+
+	@Parameters
+	public static Collection<Object[]> graphTypes() {
+		Collection<Object[]> types = new ArrayList<>();
+		for(GraphType type : GraphType.values())
+			types.add(new Object[] { type });
+		return types;
+	}
+
+	protected final GraphType type;
+	private GraphType saved;
+
+	protected BothGraphTypes(GraphType type) {
+		this.type = type;
+	}
+
+	@Before
+	public void useGraphType() {
+		saved = NFA.defaultGraphType;
+		NFA.defaultGraphType = type;
+	}
+
+	@After
+	public void restoreGraphType() {
+		NFA.defaultGraphType = saved;
+	}
+
+}
@@ -0,0 +1,81 @@
+package test.nfa;
+
+import static org.junit.Assert.*;
+
+import nfa.CompactNFA;
+import nfa.NFA;
+import nfa.Transition;
+import nfa.generators.AbstractNFAGenerator;
+import nfa.generators.SpanningTreeMethod;
+
+import org.junit.Test;
+
+public class CompactNFATest extends BothGraphTypes {
+
+	public CompactNFATest(NFA.GraphType type) {
+		super(type);
+	}
+
+	@Test
+	public void testSnapshot() {
+		AbstractNFAGenerator gen = new SpanningTreeMethod();
+		NFA m = gen.generate(40, 0.1, "actg");
+		CompactNFA c = m.snapshot();
+		assertEquals(m.numStates(), c.numStates());
+		assertEquals(m.size(), c.size());
+		for(int p = 0; p < m.numStates(); p++) {
+			assertEquals(m.outdegree(p), c.outdegree(p));
+			assertEquals(m.indegree(p), c.indegree(p));
+			assertEquals(m.isFinal(p), c.isFinal(p));
+			assertEquals(m.isInitial(p), c.isInitial(p));
+			for(int a = 0; a < c.numSymbols(); a++) {
+				for(int i = c.outBegin(p, a); i < c.outEnd(p, a); i++)
+					assertEquals(a, c.outSymbol(i));
+				for(int i = c.inBegin(p, a); i < c.inEnd(p, a); i++)
+					assertEquals(a, c.inSymbol(i));
+			}
+			for(int i = c.outBegin(p); i < c.outEnd(p); i++) {
+				if(i > c.outBegin(p))
+					assertTrue(c.outSymbol(i - 1) <= c.outSymbol(i));
+				Transition t = new Transition(p, c.outTarget(i), c.symbol(c.outSymbol(i)), c.outSymbol(i));
+				assertTrue(m.transitionsFrom(p).contains(t));
+			}
+			for(int i = c.inBegin(p); i < c.inEnd(p); i++) {
+				Transition t = new Transition(c.inSource(i), p, c.symbol(c.inSymbol(i)), c.inSymbol(i));
+				assertTrue(m.transitionsTo(p).contains(t));
+			}
+		}
+	}
+
+	@Test
+	public void testReverse() {
+		NFA m = new NFA("ab(c|d)*", "abcd");
+		CompactNFA r = m.snapshot().reverse();
+		assertTrue(r.accepts("ba"));
+		assertTrue(r.accepts("cdcba"));
+		assertFalse(r.accepts("ab"));
+		m.reverse();
+		CompactNFA c = m.snapshot();
+		for(int p = 0; p < m.numStates(); p++) {
+			assertEquals(c.outdegree(p), r.outdegree(p));
+			assertEquals(c.indegree(p), r.indegree(p));
+			assertEquals(c.isInitial(p), r.isInitial(p));
+			assertEquals(c.isFinal(p), r.isFinal(p));
+		}
+	}
+
+	@Test
+	public void testAccepts() {
+		NFA m = new NFA("a(b|c)*d", "abcd");
+		assertTrue(m.accepts("ad"));
+		assertTrue(m.accepts("abcbd"));
+		assertFalse(m.accepts("a"));
+		assertFalse(m.accepts("abd" + "x"));
+		assertFalse(m.accepts("bd"));
+
+		NFA e = new NFA("(a|)*", "a");
+		assertTrue(e.accepts(""));
+		assertTrue(e.accepts("aaa"));
+	}
+
+}
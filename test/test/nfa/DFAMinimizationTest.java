@@ -0,0 +1,50 @@
+package test.nfa;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import nfa.DFA;
+import nfa.DFAMinimization;
+import utils.PairTables;
+
+import org.junit.Test;
+
+public class DFAMinimizationTest {
+
+	private static DFA random(Random random, int n) {
+		Set<Integer> finals = new HashSet<>();
+		for(int q = 0; q < n; q++)
+			if(random.nextInt(3) == 0)
+				finals.add(q);
+		DFA d = new DFA(n, "abc", 0, finals);
+		for(int p = 0; p < n; p++)
+			for(char c : "abc".toCharArray())
+				if(random.nextInt(4) != 0)
+					d.addTransition(p, random.nextInt(n), c);
+		return d;
+	}
+
+	@Test
+	public void testOffHeap() {
+		Random random = new Random(5);
+		long budget = PairTables.defaultHeapBudget;
+		try {
+			for(int run = 0; run < 50; run++) {
+				DFA d = random(random, 3 + random.nextInt(80));
+				DFA expected = new DFA(d), actual = new DFA(d);
+				PairTables.defaultHeapBudget = Long.MAX_VALUE;
+				DFAMinimization.minimize(expected);
+				//a budget of 0 puts the table off the heap
+				PairTables.defaultHeapBudget = 0;
+				DFAMinimization.minimize(actual);
+				assertEquals(expected.toString(), actual.toString());
+			}
+		} finally {
+			PairTables.defaultHeapBudget = budget;
+		}
+	}
+
+}
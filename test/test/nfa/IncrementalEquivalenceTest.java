@@ -0,0 +1,102 @@
+package test.nfa;
+
+import static org.junit.Assert.*;
+import static test.nfa.Automata.assertSameClasses;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import nfa.CompactNFA;
+import nfa.IncrementalEquivalence;
+import nfa.NFA;
+import nfa.PartitionRefinement;
+import nfa.Transition;
+import nfa.TransitionListener;
+import utils.DisjointSets;
+
+import org.junit.Test;
+
+public class IncrementalEquivalenceTest extends BothGraphTypes {
+
+	public IncrementalEquivalenceTest(NFA.GraphType type) {
+		super(type);
+	}
+
+	private static void assertUpToDate(IncrementalEquivalence eq) {
+		CompactNFA c = eq.getNFA().snapshot();
+		assertSameClasses(new PartitionRefinement(c).compute(), eq.getRight());
+		assertSameClasses(new PartitionRefinement(c.reverse()).compute(), eq.getLeft());
+	}
+
+	@Test
+	public void testEdits() {
+		Random random = new Random(17);
+		for(NFA m : Automata.samples()) {
+			IncrementalEquivalence eq = new IncrementalEquivalence(m);
+			assertUpToDate(eq);
+			int n = m.numStates();
+			int k = m.symbols().numIndices();
+			for(int edit = 0; edit < 40; edit++) {
+				if(random.nextBoolean() && m.size() > 0) {
+					List<Transition> all = new ArrayList<>(m.transitions());
+					Transition t = all.get(random.nextInt(all.size()));
+					assertTrue(m.removeTransition(t.from(), t.to(), t.symbolIndex()));
+				} else {
+					m.addTransition(random.nextInt(n), random.nextInt(n), random.nextInt(k));
+				}
+				assertUpToDate(eq);
+			}
+			m.clearVertex(random.nextInt(n));
+			assertUpToDate(eq);
+			m.relabel();
+			assertUpToDate(eq);
+		}
+	}
+
+	@Test
+	public void testMerges() {
+		int[] events = new int[3];
+		TransitionListener counter = new TransitionListener() {
+			public void transitionAdded(int u, int v, int symbolIndex) { events[0]++; }
+			public void transitionRemoved(int u, int v, int symbolIndex) { events[1]++; }
+			public void statesChanged() { events[2]++; }
+		};
+		for(NFA m : Automata.samples()) {
+			IncrementalEquivalence eq = new IncrementalEquivalence(m);
+			m.addListener(counter);
+			DisjointSets right = eq.getRight();
+			for(int p = 0; p < m.numStates(); p++)
+				if(right.find(p) != p && m.indegree(p) > 0) {
+					//a merge is reported once, not per transition it moves
+					Arrays.fill(events, 0);
+					m.mergeRight(right.find(p), p);
+					assertArrayEquals(new int[] { 0, 0, 1 }, events);
+					assertUpToDate(eq);
+					break;
+				}
+			//clearing a state is reported one transition at a time
+			int q = m.numStates() - 1;
+			int degree = m.indegree(q) + m.outdegree(q);
+			for(Transition t : m.transitionsFrom(q))
+				if(t.to() == q)
+					degree--;
+			Arrays.fill(events, 0);
+			m.clearVertex(q);
+			assertArrayEquals(new int[] { 0, degree, 0 }, events);
+			assertUpToDate(eq);
+		}
+	}
+
+	@Test
+	public void testDetach() {
+		NFA m = new NFA("(a|b)*abb", "ab");
+		IncrementalEquivalence eq = new IncrementalEquivalence(m);
+		eq.detach();
+		int before = eq.getRight().count();
+		m.addTransition(0, 0, 'a');
+		assertEquals(before, eq.getRight().count());
+	}
+
+}
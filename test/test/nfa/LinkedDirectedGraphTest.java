@@ -0,0 +1,176 @@
+package test.nfa;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import graph.DirectedEdgeGraph;
+import graph.DirectedGraph;
+import graph.Edge;
+import graph.LinkedDirectedGraph;
+
+import org.junit.Test;
+
+public class LinkedDirectedGraphTest {
+
+	private static Set<String> edges(Iterable<Edge> edges) {
+		Set<String> set = new HashSet<>();
+		for(Edge e : edges)
+			set.add(e.from() + "-" + e.to());
+		return set;
+	}
+
+	private static void assertSameGraph(DirectedEdgeGraph<Edge> expected, DirectedEdgeGraph<Edge> actual) {
+		assertEquals(expected.order(), actual.order());
+		assertEquals(expected.size(), actual.size());
+		for(int v = 0; v < expected.order(); v++) {
+			assertEquals(expected.outdegree(v), actual.outdegree(v));
+			assertEquals(expected.indegree(v), actual.indegree(v));
+			assertEquals(expected.outdegree(v), actual.edgesFrom(v).size());
+			assertEquals(expected.indegree(v), actual.edgesTo(v).size());
+			assertEquals(edges(expected.edgesFrom(v)), edges(actual.edgesFrom(v)));
+			assertEquals(edges(expected.edgesTo(v)), edges(actual.edgesTo(v)));
+		}
+		assertEquals(edges(expected.edges()), edges(actual.edges()));
+	}
+
+	private static Edge find(DirectedEdgeGraph<Edge> g, int u, int v) {
+		for(Edge e : g.edgesFrom(u))
+			if(e.to() == v)
+				return e;
+		return null;
+	}
+
+	/**
+	 * Random additions, removals, transposes and relabels, some keeping vertices without edges,
+	 * checked against DirectedGraph
+	 */
+	@Test
+	public void testRandom() {
+		Random random = new Random(2);
+		for(int run = 0; run < 20; run++) {
+			int n = 5 + random.nextInt(30);
+			DirectedGraph<Edge> expected = new DirectedGraph<>(n);
+			LinkedDirectedGraph<Edge> actual = new LinkedDirectedGraph<>(n);
+			for(int op = 0; op < 400; op++) {
+				n = expected.order();
+				int u = random.nextInt(n), v = random.nextInt(n);
+				int r = random.nextInt(100);
+				if(r < 60) {
+					if(!edges(expected.edgesFrom(u)).contains(u + "-" + v)) {
+						expected.addEdge(new Edge(u, v));
+						actual.addEdge(new Edge(u, v));
+					}
+				} else if(r < 85) {
+					//the graphs only remove edges they hold, as NFA does
+					Edge e = find(expected, u, v), f = find(actual, u, v);
+					assertEquals(e == null, f == null);
+					if(e != null) {
+						expected.removeEdge(e);
+						actual.removeEdge(f);
+					}
+				} else if(r < 93) {
+					expected.clearVertex(u);
+					actual.clearVertex(u);
+				} else if(r < 97) {
+					expected.transpose();
+					actual.transpose();
+				} else if(expected.size() > 0) {
+					if(random.nextBoolean())
+						assertArrayEquals(expected.relabel(), actual.relabel());
+					else
+						assertArrayEquals(expected.relabel(w -> w % 3 == 0), actual.relabel(w -> w % 3 == 0));
+				}
+				assertSameGraph(expected, actual);
+			}
+		}
+	}
+
+	@Test
+	public void testRemoveWhileIterating() {
+		LinkedDirectedGraph<Edge> g = new LinkedDirectedGraph<>(4);
+		g.addEdge(new Edge(0, 0));
+		for(int v = 1; v < 4; v++) {
+			g.addEdge(new Edge(0, v));
+			g.addEdge(new Edge(v, 0));
+		}
+		//remove every other edge leaving 0 through the live view
+		Iterator<Edge> it = g.edgesFrom(0).iterator();
+		int i = 0;
+		while(it.hasNext()) {
+			Edge e = it.next();
+			if(i++ % 2 == 0)
+				it.remove();
+			else
+				assertTrue(e.to() % 2 == 1);
+		}
+		assertEquals(edges(List.of(new Edge(0, 1), new Edge(0, 3))), edges(g.edgesFrom(0)));
+		assertEquals(5, g.size());
+		assertEquals(2, g.outdegree(0));
+		assertEquals(3, g.indegree(0));	//0-0 is gone from the in-list as well
+		it = g.edgesTo(0).iterator();
+		it.next();
+		it.remove();
+		try {
+			it.remove();
+			fail("remove() twice should throw");
+		} catch(IllegalStateException e) {
+		}
+		assertEquals(2, g.indegree(0));
+
+		//clearing a vertex while its view is open leaves the view empty
+		Iterable<Edge> in = g.edgesTo(0);
+		g.clearVertex(0);
+		assertFalse(in.iterator().hasNext());
+		assertEquals(0, g.size());
+	}
+
+	@Test
+	public void testRelabelCompacts() {
+		LinkedDirectedGraph<Edge> g = new LinkedDirectedGraph<>(6);
+		List<Edge> added = new ArrayList<>();
+		for(int v = 0; v < 5; v++) {
+			Edge e = new Edge(v, v + 1);
+			added.add(e);
+			g.addEdge(e);
+		}
+		g.removeEdge(added.get(1));		//1-2
+		g.removeEdge(added.get(2));		//2-3, leaving 2 without edges
+		int[] map = g.relabel();
+		assertArrayEquals(new int[] { 0, 1, -1, 2, 3, 4 }, map);
+		assertEquals(5, g.order());
+		assertEquals(3, g.size());
+		assertEquals(edges(List.of(new Edge(0, 1), new Edge(2, 3), new Edge(3, 4))), edges(g.edges()));
+
+		//the edge objects were renumbered in place and can still be removed in O(1)
+		g.removeEdge(added.get(3));
+		assertEquals(edges(List.of(new Edge(0, 1), new Edge(3, 4))), edges(g.edges()));
+		//freed slots are reused
+		g.addEdge(new Edge(4, 0));
+		g.addEdge(new Edge(1, 2));
+		assertEquals(edges(List.of(new Edge(0, 1), new Edge(1, 2), new Edge(3, 4), new Edge(4, 0))), edges(g.edges()));
+		assertEquals(1, g.indegree(0));
+	}
+
+	@Test
+	public void testSharedEdge() {
+		//an edge object in two graphs only has the slot of one, but is still found in both
+		LinkedDirectedGraph<Edge> g = new LinkedDirectedGraph<>(3);
+		LinkedDirectedGraph<Edge> h = new LinkedDirectedGraph<>(3);
+		g.addEdge(new Edge(2, 1));
+		Edge e = new Edge(0, 1);
+		g.addEdge(e);
+		h.addEdge(e);
+		g.removeEdge(e);
+		assertEquals(1, g.size());
+		assertEquals(1, h.size());
+		h.removeEdge(e);
+		assertEquals(0, h.size());
+	}
+
+}
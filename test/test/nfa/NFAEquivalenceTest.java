@@ -0,0 +1,70 @@
+package test.nfa;
+
+import static test.nfa.Automata.assertSameClasses;
+
+import nfa.NFA;
+import nfa.NFAEquivalence;
+import nfa.generators.SpanningTreeMethod;
+
+import org.junit.Test;
+
+public class NFAEquivalenceTest {
+
+	private static void assertSameEquivalence(NFA m, NFAEquivalence.Options options) {
+		NFAEquivalence.Options sequential = new NFAEquivalence.Options();
+		sequential.concurrent = false;
+		NFAEquivalence expected = new NFAEquivalence(new NFA(m), sequential);
+		NFAEquivalence actual = new NFAEquivalence(new NFA(m), options);
+		assertSameClasses(expected.getRight(), actual.getRight());
+		assertSameClasses(expected.getLeft(), actual.getLeft());
+	}
+
+	@Test
+	public void testConcurrent() {
+		NFAEquivalence.Options concurrent = new NFAEquivalence.Options();
+		concurrent.concurrent = true;
+		for(NFA m : Automata.samples())
+			assertSameEquivalence(m, concurrent);
+	}
+	
+	@Test
+	public void testThreads() {
+		NFAEquivalence.Options parallel = new NFAEquivalence.Options();
+		parallel.threads = 4;
+		for(NFA m : Automata.samples())
+			assertSameEquivalence(m, parallel);
+		//enough pairs for the threads to share chunks; they interleave differently on every run
+		NFA large = new SpanningTreeMethod().generate(400, 0.05, "ab");
+		for(int run = 0; run < 3; run++)
+			assertSameEquivalence(large, parallel);
+	}
+	
+	@Test
+	public void testOffHeap() {
+		int i = 0;
+		for(NFA m : Automata.samples()) {
+			//a budget of 0 puts every table off the heap, in a scratch file or in direct buffers
+			NFAEquivalence.Options options = new NFAEquivalence.Options();
+			options.heapBudget = 0;
+			if(i % 2 == 1)
+				options.scratchDir = null;
+			i++;
+			assertSameEquivalence(m, options);
+		}
+	}
+	
+	@Test
+	public void testOffHeapThreads() {
+		//a small budget keeps the tables of small buckets on the heap and moves the rest off it
+		NFAEquivalence.Options options = new NFAEquivalence.Options();
+		options.heapBudget = 1024;
+		options.threads = 4;
+		for(NFA m : Automata.samples())
+			assertSameEquivalence(m, options);
+		NFA large = new SpanningTreeMethod().generate(200, 0.05, "ab");
+		options.scratchDir = null;
+		for(int run = 0; run < 3; run++)
+			assertSameEquivalence(large, options);
+	}
+
+}
@@ -0,0 +1,93 @@
+package test.nfa;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import nfa.NFA;
+import nfa.NFAException;
+import nfa.generators.AbstractNFAGenerator;
+import nfa.generators.SpanningTreeMethod;
+import nfa.io.NFAParser;
+
+import org.junit.Test;
+
+public class NFAParserTest {
+
+	private static ByteBuffer bytes(String s) {
+		return ByteBuffer.wrap(s.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static void assertSameNFA(NFA expected, NFA actual) {
+		assertEquals(expected.numStates(), actual.numStates());
+		assertEquals(expected.size(), actual.size());
+		assertEquals(expected.alphabet(), actual.alphabet());
+		assertEquals(expected.initialStates(), actual.initialStates());
+		assertEquals(expected.finalStates(), actual.finalStates());
+		expected.forEachTransition((u, v, c) -> assertTrue(actual.hasTransition(u, v, c)));
+	}
+
+	@Test
+	public void testParse() throws IOException {
+		AbstractNFAGenerator gen = new SpanningTreeMethod();
+		NFA m = gen.generate(200, 0.1, "actg");
+		m.addTransition(3, 4, NFA.EPSILON);
+		String text = m.toString();
+		NFA expected = new NFA(new StringReader(text));
+		assertSameNFA(expected, new NFAParser(1).parse(bytes(text)));
+		assertSameNFA(expected, new NFAParser(4).parse(bytes(text)));
+		assertSameNFA(expected, new NFAParser(2).parse(bytes(text.replace("\n", "\r\n"))));
+
+		//repeat the transitions (duplicates are ignored) so the input is split into several chunks
+		StringBuilder sb = new StringBuilder(text);
+		String body = text.substring(text.indexOf('\n', text.indexOf('\n', text.indexOf('\n', text.indexOf('\n') + 1) + 1) + 1) + 1);
+		while(sb.length() < 8 << 20)
+			sb.append(body);
+		String large = sb.toString();
+		assertSameNFA(expected, new NFAParser(4).parse(bytes(large)));
+
+		File file = File.createTempFile("nfa", ".nfa");
+		try {
+			Files.write(file.toPath(), large.getBytes(StandardCharsets.UTF_8));
+			NFAParser parser = new NFAParser(3);
+			assertSameNFA(expected, parser.parse(file));
+			assertEquals(file.length(), parser.bytesRead());
+			assertTrue(parser.throughput() > 0);
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testEpsilon() {
+		NFA m = new NFAParser().parse(bytes("3\nab\n0 \n2 \n0 1 a\n1 2 \n\n1 2 ɛ\n2 2 b\n"));
+		assertEquals(3, m.size());
+		assertTrue(m.accepts("a"));
+		assertTrue(m.accepts("abb"));
+		assertFalse(m.accepts("b"));
+	}
+
+	@Test
+	public void testWriteTo() throws IOException {
+		NFA m = new NFAParser().parse(bytes("3\nab\n0 \n2 \n0 1 a\n1 2 \n2 2 b\n"));
+		String expected = "3\nab\n0 \n2 \n0 1 a\n1 2 ɛ\n2 2 b\n";
+		assertEquals(expected, m.toString());
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		m.writeTo(out);
+		assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), out.toByteArray());
+		assertSameNFA(m, new NFAParser().parse(bytes(expected)));
+		assertTrue(m.toDot().contains("\t1 -> 2 [color=red];\n"));
+	}
+
+	@Test(expected = NFAException.class)
+	public void testUnknownSymbol() {
+		new NFAParser().parse(bytes("2\nab\n0\n1\n0 1 c\n"));
+	}
+
+}
@@ -0,0 +1,100 @@
+package test.nfa;
+
+import static org.junit.Assert.*;
+import static test.nfa.Automata.assertSameLanguage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import nfa.NFA;
+import nfa.NFAEquivalence;
+import nfa.NFAReduction;
+import nfa.ReductionOptions;
+import nfa.ReductionResult;
+import nfa.generators.SpanningTreeMethod;
+
+import org.junit.Test;
+
+public class NFAReductionTest extends BothGraphTypes {
+
+	public NFAReductionTest(NFA.GraphType type) {
+		super(type);
+	}
+
+	private static void assertConsistent(NFA input, ReductionResult result) {
+		NFA reduced = result.getNFA();
+		int[] map = result.getStateMap();
+		assertEquals(input.numStates(), map.length);
+		for(int q = 0; q < map.length; q++) {
+			//a state that accepts the empty string is always useful
+			if(input.isInitial(q) && input.isFinal(q))
+				assertTrue(map[q] != -1);
+			if(map[q] != -1) {
+				assertTrue(map[q] < reduced.numStates());
+				if(input.isInitial(q))
+					assertTrue(reduced.isInitial(map[q]));
+				if(input.isFinal(q))
+					assertTrue(reduced.isFinal(map[q]));
+			}
+		}
+		List<Set<Integer>> classes = new ArrayList<>(result.getLeftClasses());
+		classes.addAll(result.getRightClasses());
+		for(Set<Integer> set : classes) {
+			int q0 = set.iterator().next();
+			for(int q : set)
+				assertEquals(map[q0], map[q]);
+		}
+	}
+
+	@Test
+	public void testNonDestructive() {
+		for(NFA m : Automata.samples())
+			for(int i = 0; i < 2; i++) {
+				ReductionOptions options = new ReductionOptions();
+				options.structural = i == 1;
+				String before = m.toString();
+				ReductionResult result = NFAReduction.reduce(m, options);
+				assertEquals(type, result.getNFA().graphType());
+				assertEquals(before, m.toString());
+				assertConsistent(m, result);
+				assertSameLanguage(m, result.getNFA());
+			}
+	}
+
+	@Test
+	public void testInPlace() {
+		for(NFA m : Automata.samples()) {
+			NFA reduced = new NFA(m);
+			NFAReduction.reduce(reduced);
+			assertSameLanguage(m, reduced);
+			assertTrue(reduced.numStates() <= m.numStates());
+		}
+	}
+
+	@Test
+	public void testConcurrentReductions() {
+		NFA m = new SpanningTreeMethod().generate(80, 0.05, "ab");
+		String before = m.toString();
+		List<ReductionOptions> settings = new ArrayList<>();
+		for(int i = 0; i < 4; i++) {
+			ReductionOptions options = new ReductionOptions();
+			options.structural = i % 2 == 0;
+			options.relabel = i < 2;
+			options.equivalence.method = i < 2 ? NFAEquivalence.Method.TABLE : NFAEquivalence.Method.PARTITION_REFINEMENT;
+			settings.add(options);
+		}
+		List<CompletableFuture<ReductionResult>> results = new ArrayList<>();
+		for(ReductionOptions options : settings)
+			results.add(CompletableFuture.supplyAsync(() -> NFAReduction.reduce(m, options)));
+		for(int i = 0; i < settings.size(); i++) {
+			ReductionResult result = results.get(i).join();
+			assertConsistent(m, result);
+			assertSameLanguage(m, result.getNFA());
+			assertEquals(NFAReduction.reduce(m, settings.get(i)).getNFA().toString(), result.getNFA().toString());
+		}
+		assertEquals(before, m.toString());
+	}
+
+}
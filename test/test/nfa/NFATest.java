@@ -3,6 +3,7 @@ package test.nfa;
 import static org.junit.Assert.*;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Scanner;
 
 import nfa.*;
@@ -12,6 +13,37 @@ import org.junit.Test;
 
 public class NFATest {
 
+	@Test
+	public void testReverse() {
+		NFA m = new NFA("(a|b)*abb", "ab");
+		int size = m.size();
+		for(int i = 0; i < 3; i++) {
+			m.reverse();
+			//duplicates are still detected whichever way the automaton reads
+			for(Transition t : new ArrayList<>(m.transitions())) {
+				assertTrue(m.hasTransition(t.from(), t.to(), t.symbolIndex()));
+				m.addTransition(t.from(), t.to(), t.symbolIndex());
+			}
+			assertEquals(size, m.size());
+		}
+		//m is reversed: remove a transition as it reads now, then add it back
+		Transition t = m.transitions().iterator().next();
+		assertTrue(m.removeTransition(t.from(), t.to(), t.symbolIndex()));
+		assertFalse(m.hasTransition(t.from(), t.to(), t.symbolIndex()));
+		assertEquals(size - 1, m.size());
+		assertFalse(m.transitionsFrom(t.from()).contains(t));
+		m.reverse();
+		assertFalse(m.hasTransition(t.to(), t.from(), t.symbolIndex()));
+		m.addTransition(t.to(), t.from(), t.symbolIndex());
+		m.reverse();
+		assertTrue(m.hasTransition(t.from(), t.to(), t.symbolIndex()));
+		assertEquals(size, m.size());
+		m.relabel();
+		assertEquals(size, m.size());
+		for(Transition u : m.transitions())
+			assertTrue(m.hasTransition(u.from(), u.to(), u.symbolIndex()));
+	}
+
 	@Test
 	public void testAccepts() throws IOException {
 		Scanner sc = new Scanner(System.in);
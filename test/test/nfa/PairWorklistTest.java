@@ -0,0 +1,80 @@
+package test.nfa;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import utils.PairQueue;
+import utils.PairWorklist;
+
+import org.junit.Test;
+
+public class PairWorklistTest {
+
+	/**
+	 * Each pair (p, q) with p > 0 produces (p - 1, q) and (p - 1, q + 1)
+	 */
+	private static void expand(PairQueue Q, long pair) {
+		int p = PairQueue.first(pair), q = PairQueue.second(pair);
+		if(p > 0) {
+			Q.add(p - 1, q);
+			Q.add(p - 1, q + 1);
+		}
+	}
+
+	private static void expand(PairQueue Q, long[] pairs, int count) {
+		for(int i = 0; i < count; i++)
+			expand(Q, pairs[i]);
+	}
+
+	@Test(timeout = 20000)
+	public void testAllPairs() {
+		for(int threads = 1; threads <= 4; threads++) {
+			PairQueue seeds = new PairQueue();
+			seeds.add(14, 0);
+			seeds.add(12, 0);
+			AtomicInteger count = new AtomicInteger();
+			//batches smaller than, equal to and larger than the chunks
+			int batch = Math.max(1, 4 * threads - 4);
+			PairWorklist.run(seeds, threads, 8, batch, (Q, pairs, n) -> {
+				assertTrue(n >= 1 && n <= batch);
+				count.addAndGet(n);
+				expand(Q, pairs, n);
+			});
+			assertEquals((1 << 15) - 1 + (1 << 13) - 1, count.get());
+		}
+	}
+
+	@Test(timeout = 20000)
+	public void testFailure() {
+		for(int threads = 1; threads <= 4; threads++) {
+			PairQueue seeds = new PairQueue();
+			seeds.add(16, 0);
+			AtomicInteger count = new AtomicInteger();
+			try {
+				PairWorklist.run(seeds, threads, 8, 8, (Q, pairs, n) -> {
+					if(count.incrementAndGet() == 500)
+						throw new IllegalStateException("injected");
+					expand(Q, pairs, n);
+				});
+				fail("The failure was not reported");
+			} catch(IllegalStateException e) {
+				assertEquals("injected", e.getMessage());
+			}
+			assertTrue(count.get() < ((1 << 17) - 1) / 8);
+		}
+	}
+
+	@Test(timeout = 20000, expected = OutOfMemoryError.class)
+	public void testError() {
+		PairQueue seeds = new PairQueue();
+		seeds.add(16, 0);
+		AtomicInteger count = new AtomicInteger();
+		PairWorklist.run(seeds, 3, 8, 8, (Q, pairs, n) -> {
+			if(count.incrementAndGet() == 100)
+				throw new OutOfMemoryError("injected");
+			expand(Q, pairs, n);
+		});
+	}
+
+}
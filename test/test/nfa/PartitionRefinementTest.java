@@ -0,0 +1,38 @@
+package test.nfa;
+
+import static test.nfa.Automata.assertSameClasses;
+
+import nfa.NFA;
+import nfa.NFAEquivalence;
+import nfa.NFAEquivalence.Method;
+import nfa.generators.AbstractNFAGenerator;
+import nfa.generators.PartitionMethod;
+import nfa.generators.RegexMethod;
+import nfa.generators.SpanningTreeMethod;
+
+import org.junit.Test;
+
+public class PartitionRefinementTest {
+
+	private static void assertSameEquivalence(NFA m) {
+		NFAEquivalence table = new NFAEquivalence(new NFA(m), Method.TABLE);
+		NFAEquivalence refinement = new NFAEquivalence(new NFA(m), Method.PARTITION_REFINEMENT);
+		assertSameClasses(table.getRight(), refinement.getRight());
+		assertSameClasses(table.getLeft(), refinement.getLeft());
+	}
+
+	@Test
+	public void testGenerated() {
+		AbstractNFAGenerator[] generators = { new RegexMethod(), new SpanningTreeMethod(), new PartitionMethod() };
+		for(AbstractNFAGenerator gen : generators)
+			for(int i = 0; i < 6; i++)
+				assertSameEquivalence(gen.generate(20 + 10 * i, 0.1 + 0.02 * i, i % 2 == 0 ? "ab" : "actg"));
+	}
+
+	@Test
+	public void testSamples() {
+		for(NFA m : Automata.samples())
+			assertSameEquivalence(m);
+	}
+
+}
@@ -0,0 +1,86 @@
+package test.nfa;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import nfa.NFA;
+import nfa.NFAException;
+import nfa.Quotient;
+import nfa.Transition;
+
+import org.junit.Test;
+
+public class QuotientTest extends BothGraphTypes {
+
+	public QuotientTest(NFA.GraphType type) {
+		super(type);
+	}
+
+	private static Set<List<Integer>> transitions(NFA m, int u) {
+		Set<List<Integer>> set = new HashSet<>();
+		for(Transition t : m.transitionsFrom(u))
+			set.add(List.of(t.to(), t.symbolIndex()));
+		return set;
+	}
+
+	@Test
+	public void testSequentialMerges() {
+		Random random = new Random(24);
+		for(NFA m : Automata.samples()) {
+			int n = m.numStates();
+			Quotient quotient = new Quotient(m.snapshot());
+			NFA expected = new NFA(m);
+			//random disjoint classes, merged one at a time into expected
+			List<Integer> states = new ArrayList<>();
+			for(int q = 0; q < n; q++)
+				states.add(q);
+			Collections.shuffle(states, random);
+			for(int k = 0; k + 3 <= n; k += 3) {
+				List<Integer> set = states.subList(k, k + 1 + random.nextInt(3));
+				boolean left = random.nextBoolean();
+				if(left)
+					quotient.mergeLeft(set);
+				else
+					quotient.mergeRight(set);
+				for(int w : set.subList(1, set.size()))
+					if(left)
+						expected.mergeLeft(set.get(0), w);
+					else
+						expected.mergeRight(set.get(0), w);
+			}
+
+			NFA actual = quotient.build(false);
+			assertEquals(n, actual.numStates());
+			assertEquals(expected.size(), actual.size());
+			for(int q = 0; q < n; q++) {
+				assertEquals(expected.isInitial(q), actual.isInitial(q));
+				assertEquals(expected.isFinal(q), actual.isFinal(q));
+				assertEquals(transitions(expected, q), transitions(actual, q));
+			}
+
+			//the state map follows the relabelling
+			int[] merged = quotient.stateMap();
+			NFA relabelled = quotient.build(true);
+			int[] map = quotient.stateMap();
+			int[] renumber = actual.relabel();
+			assertEquals(actual.numStates(), relabelled.numStates());
+			for(int q = 0; q < n; q++)
+				assertEquals(renumber[merged[q]], map[q]);
+		}
+	}
+
+	@Test(expected = NFAException.class)
+	public void testOverlappingClasses() {
+		NFA m = new NFA("(a|b)*abb", "ab");
+		Quotient quotient = new Quotient(m.snapshot());
+		quotient.mergeLeft(List.of(0, 1));
+		quotient.mergeRight(List.of(2, 1));
+	}
+
+}
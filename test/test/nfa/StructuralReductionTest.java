@@ -0,0 +1,54 @@
+package test.nfa;
+
+import static org.junit.Assert.*;
+import static test.nfa.Automata.assertSameLanguage;
+
+import nfa.NFA;
+import nfa.StructuralReduction;
+
+import org.junit.Test;
+
+public class StructuralReductionTest extends BothGraphTypes {
+
+	public StructuralReductionTest(NFA.GraphType type) {
+		super(type);
+	}
+
+	@Test
+	public void testRegex() {
+		String[] regexes = { "(a|b)*abb(a|b)*", "(ab|ba)(a|b)*(aab|abb|b)", "((a|b)(a|b))*a|b*" };
+		for(String regex : regexes) {
+			NFA m = new NFA(regex, "ab");
+			NFA reduced = new NFA(m);
+			int removed = StructuralReduction.reduce(reduced);
+			assertTrue(removed > 0);
+			reduced.relabel();
+			assertEquals(m.numStates() - removed, reduced.numStates());
+			assertSameLanguage(m, reduced);
+		}
+	}
+
+	/**
+	 * Epsilon transitions, several initial and final states, an empty language and generated automata
+	 */
+	@Test
+	public void testSamples() {
+		for(NFA m : Automata.samples()) {
+			NFA reduced = new NFA(m);
+			int[] into = new int[m.numStates()];
+			for(int q = 0; q < into.length; q++)
+				into[q] = q;
+			int removed = StructuralReduction.reduce(reduced, into);
+			assertSameLanguage(m, reduced);
+			int merged = 0;
+			for(int q = 0; q < into.length; q++)
+				if(into[q] != q) {
+					merged++;
+					//merged states are left without transitions
+					assertEquals(0, reduced.outdegree(q) + reduced.indegree(q));
+				}
+			assertEquals(removed, merged);
+		}
+	}
+
+}
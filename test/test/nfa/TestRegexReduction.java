@@ -67,14 +67,13 @@ public class TestRegexReduction {
 	}
 	
 	private void testReduction(NFA m) {
-		Set<String> accepts, acceptsReduced;
+		Set<String> accepts;
 		accepts = simulate(m);
 //			System.out.println(accepts);
 		NFAReduction.reduce(m);
-		acceptsReduced = simulate(m);
-//			System.out.println(acceptsReduced);
+		//merging states can make an accepting path reuse a transition, which simulate() does not follow
 		for(String s : accepts) {
-			if(!acceptsReduced.contains(s)) {
+			if(!m.accepts(s.replace(String.valueOf(NFA.EPSILON), ""))) {
 				System.out.println("Reduced NFA does not accept " + s);
 				fail();
 			}